@@ -0,0 +1,129 @@
+package com.maxmind.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Opens the databases used by the benchmarks and generates the addresses they
+ * look up.
+ *
+ * Databases are found in the directory given by the maxmind.db.benchmark.dir
+ * system property, defaulting to the test databases of this repository when
+ * run from the benchmarks directory. A database name that is an absolute path
+ * is used as is, so that e.g. a GeoIP2 City database can be benchmarked.
+ */
+final class BenchmarkDatabases {
+    static final String DIRECTORY_PROPERTY = "maxmind.db.benchmark.dir";
+    private static final String DEFAULT_DIRECTORY = "../src/test/resources/maxmind-db/test-data";
+
+    // A power of two so that the benchmarks can wrap around with a mask.
+    static final int ADDRESS_COUNT = 1 << 12;
+
+    private BenchmarkDatabases() {
+    }
+
+    static File file(String name) {
+        var file = new File(name);
+        if (!file.isAbsolute()) {
+            file = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY), name);
+        }
+        if (!file.isFile()) {
+            throw new IllegalStateException("The database " + file + " does not exist. Run"
+                + " git submodule update --init or set -D" + DIRECTORY_PROPERTY + ".");
+        }
+        return file;
+    }
+
+    static Reader.Builder builder(String name, String fileMode, int chunkSize) {
+        var builder = new Reader.Builder(file(name)).fileMode(Reader.FileMode.valueOf(fileMode));
+        if (chunkSize > 0) {
+            builder.chunkSize(chunkSize);
+        }
+        return builder;
+    }
+
+    static NodeCache cache(String name) {
+        return switch (name) {
+            case "none" -> NoCache.getInstance();
+            case "chm" -> new CHMCache();
+            case "tinylfu" -> new TinyLfuCache();
+            case "striped" -> new StripedCache();
+            default -> throw new IllegalArgumentException("Unknown cache: " + name);
+        };
+    }
+
+    /*
+     * Returns ADDRESS_COUNT addresses of the IP version in network byte
+     * order. With "networks", each is a random address in a random network
+     * of the database, so nearly all lookups find data. With "random", they
+     * are uniformly random, so in a sparse database most lookups end early
+     * without data.
+     */
+    static byte[][] addresses(Reader reader, int ipVersion, String distribution)
+        throws IOException, InvalidNetworkException {
+        int length = ipVersion == 4 ? 4 : 16;
+        var random = new Random(ipVersion);
+        var addresses = new byte[ADDRESS_COUNT][];
+        switch (distribution) {
+            case "random" -> {
+                for (int i = 0; i < addresses.length; i++) {
+                    addresses[i] = new byte[length];
+                    random.nextBytes(addresses[i]);
+                }
+            }
+            case "networks" -> {
+                var networks = networks(reader, length);
+                for (int i = 0; i < addresses.length; i++) {
+                    var network = networks.get(random.nextInt(networks.size()));
+                    addresses[i] = randomAddressIn(network, random);
+                }
+            }
+            default -> throw new IllegalArgumentException(
+                "Unknown address distribution: " + distribution);
+        }
+        return addresses;
+    }
+
+    static InetAddress[] inetAddresses(byte[][] addresses) throws IOException {
+        var inetAddresses = new InetAddress[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            inetAddresses[i] = InetAddress.getByAddress(addresses[i]);
+        }
+        return inetAddresses;
+    }
+
+    private static List<Network> networks(Reader reader, int length)
+        throws IOException, InvalidNetworkException {
+        var networks = new ArrayList<Network>();
+        var iterator = reader.networks(Map.class);
+        while (iterator.hasNext()) {
+            var network = iterator.next().network();
+            if (network.networkAddress().getAddress().length == length) {
+                networks.add(network);
+            }
+        }
+        if (networks.isEmpty()) {
+            throw new IllegalStateException(
+                "The database has no networks with " + length + "-byte addresses.");
+        }
+        return networks;
+    }
+
+    private static byte[] randomAddressIn(Network network, Random random) {
+        var address = network.networkAddress().getAddress();
+        var suffix = new byte[address.length];
+        random.nextBytes(suffix);
+        var result = Arrays.copyOf(address, address.length);
+        for (int i = network.prefixLength(); i < result.length * 8; i++) {
+            int mask = 0x80 >>> (i % 8);
+            result[i / 8] = (byte) ((result[i / 8] & ~mask) | (suffix[i / 8] & mask));
+        }
+        return result;
+    }
+}
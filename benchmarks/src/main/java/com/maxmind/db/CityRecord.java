@@ -0,0 +1,21 @@
+package com.maxmind.db;
+
+import java.util.Map;
+
+/*
+ * A subset of a GeoIP2 City record, for benchmarking decoding into records
+ * rather than maps. Databases without these keys decode to nulls.
+ */
+record CityRecord(City city, Country country, Location location) {
+    record City(@MaxMindDbParameter(name = "geoname_id") Long geonameId,
+                Map<String, String> names) {
+    }
+
+    record Country(@MaxMindDbParameter(name = "geoname_id") Long geonameId,
+                   @MaxMindDbParameter(name = "iso_code") String isoCode) {
+    }
+
+    record Location(Double latitude, Double longitude,
+                    @MaxMindDbParameter(name = "time_zone") String timeZone) {
+    }
+}
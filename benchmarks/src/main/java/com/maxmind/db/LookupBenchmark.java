@@ -0,0 +1,138 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks looking up single addresses and decoding their records to a
+ * {@link Map} or to a record class, for each file mode and cache. The reader
+ * is shared by all benchmark threads, so running with {@code -t} measures
+ * contention on the reader and its caches.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    @Param("GeoIP2-City-Test.mmdb")
+    public String database;
+
+    @Param({"MEMORY_MAPPED", "MEMORY", "TREE_ON_HEAP"})
+    public String fileMode;
+
+    @Param({"none", "chm", "tinylfu", "striped"})
+    public String cache;
+
+    @Param("false")
+    public boolean recordCache;
+
+    @Param({"4", "6"})
+    public int ipVersion;
+
+    @Param("networks")
+    public String addresses;
+
+    private Reader reader;
+    private byte[][] rawAddresses;
+    private InetAddress[] inetAddresses;
+
+    /**
+     * The position of a benchmark thread in the addresses.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+        @SuppressWarnings("rawtypes")
+        final LookupResult<Map> result = new LookupResult<>();
+
+        /**
+         * Starts each thread at a different address.
+         */
+        @Setup
+        public void setup() {
+            this.next = ThreadLocalRandom.current().nextInt();
+        }
+
+        int next() {
+            return this.next++ & (BenchmarkDatabases.ADDRESS_COUNT - 1);
+        }
+    }
+
+    /**
+     * Opens the database and generates the addresses to look up.
+     *
+     * @throws IOException if the database cannot be read
+     * @throws InvalidNetworkException if the database's networks cannot be
+     *                                 read
+     */
+    @Setup
+    public void setup() throws IOException, InvalidNetworkException {
+        var builder = BenchmarkDatabases.builder(this.database, this.fileMode, 0)
+            .withCache(BenchmarkDatabases.cache(this.cache));
+        if (this.recordCache) {
+            builder.withRecordCache(new CHMCache());
+        }
+        this.reader = builder.build();
+        this.rawAddresses = BenchmarkDatabases.addresses(
+            this.reader, this.ipVersion, this.addresses);
+        this.inetAddresses = BenchmarkDatabases.inetAddresses(this.rawAddresses);
+    }
+
+    /**
+     * Closes the database.
+     *
+     * @throws IOException if the database cannot be closed
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * @param cursor the thread's position in the addresses
+     * @return the record
+     * @throws IOException if the lookup fails
+     */
+    @Benchmark
+    public Object getMap(Cursor cursor) throws IOException {
+        return this.reader.get(this.inetAddresses[cursor.next()], Map.class);
+    }
+
+    /**
+     * @param cursor the thread's position in the addresses
+     * @return the record
+     * @throws IOException if the lookup fails
+     */
+    @Benchmark
+    public Object getRecordClass(Cursor cursor) throws IOException {
+        return this.reader.get(this.inetAddresses[cursor.next()], CityRecord.class);
+    }
+
+    /**
+     * @param cursor the thread's position in the addresses
+     * @return the record
+     * @throws IOException if the lookup fails
+     */
+    @Benchmark
+    public Object lookupMap(Cursor cursor) throws IOException {
+        return this.reader.lookup(this.rawAddresses[cursor.next()], Map.class, cursor.result)
+            .data();
+    }
+}
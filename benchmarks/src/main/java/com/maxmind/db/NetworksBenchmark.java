@@ -0,0 +1,77 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks iterating over all of the networks in a database and decoding
+ * their records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworksBenchmark {
+    @Param("GeoIP2-City-Test.mmdb")
+    public String database;
+
+    @Param({"MEMORY_MAPPED", "MEMORY"})
+    public String fileMode;
+
+    @Param({"false", "true"})
+    public boolean includeAliasedNetworks;
+
+    private Reader reader;
+
+    /**
+     * Opens the database.
+     *
+     * @throws IOException if the database cannot be read
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.reader = BenchmarkDatabases.builder(this.database, this.fileMode, 0).build();
+    }
+
+    /**
+     * Closes the database.
+     *
+     * @throws IOException if the database cannot be closed
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * @return the number of networks with data
+     * @throws IOException if the iteration fails
+     * @throws InvalidNetworkException if the iteration fails
+     */
+    @Benchmark
+    public int iterate() throws IOException, InvalidNetworkException {
+        int count = 0;
+        var networks = this.reader.networks(this.includeAliasedNetworks, Map.class);
+        while (networks.hasNext()) {
+            if (networks.next().data() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
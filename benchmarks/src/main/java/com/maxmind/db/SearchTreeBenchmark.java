@@ -0,0 +1,104 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks lookups in the test databases of each record size, for each
+ * file mode and way of walking the search tree. The records in these
+ * databases are small, so this mostly measures the search tree.
+ *
+ * <p>In {@code MEMORY} mode, a {@code chunkSize} smaller than the database
+ * makes the reader use a {@link MultiBuffer}. The default of 0 uses a single
+ * buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchTreeBenchmark {
+    @Param({"24", "28", "32"})
+    public int recordSize;
+
+    @Param({"MEMORY_MAPPED", "MEMORY"})
+    public String fileMode;
+
+    @Param("0")
+    public int chunkSize;
+
+    @Param({"tree", "specialized", "jumpTable", "poptrie"})
+    public String index;
+
+    @Param({"4", "6"})
+    public int ipVersion;
+
+    @Param("networks")
+    public String addresses;
+
+    private Reader reader;
+    private byte[][] rawAddresses;
+    private final LookupResult<Object> result = new LookupResult<>();
+    private int next;
+
+    /**
+     * Opens the database and generates the addresses to look up.
+     *
+     * @throws IOException if the database cannot be read
+     * @throws InvalidNetworkException if the database's networks cannot be
+     *                                 read
+     */
+    @Setup
+    public void setup() throws IOException, InvalidNetworkException {
+        var builder = BenchmarkDatabases.builder(
+            "MaxMind-DB-test-mixed-" + this.recordSize + ".mmdb",
+            this.fileMode,
+            this.chunkSize
+        );
+        switch (this.index) {
+            case "tree" -> {
+                // Walk the search tree one bit at a time.
+            }
+            case "specialized" -> builder.specializedSearchTree(true);
+            case "jumpTable" -> builder.jumpTableBits(16);
+            case "poptrie" -> builder.poptrie(true);
+            default -> throw new IllegalArgumentException("Unknown index: " + this.index);
+        }
+        this.reader = builder.build();
+        this.rawAddresses = BenchmarkDatabases.addresses(
+            this.reader, this.ipVersion, this.addresses);
+    }
+
+    /**
+     * Closes the database.
+     *
+     * @throws IOException if the database cannot be closed
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * @return the prefix length of the network found
+     * @throws IOException if the lookup fails
+     */
+    @Benchmark
+    public int lookup() throws IOException {
+        var address = this.rawAddresses[this.next++ & (BenchmarkDatabases.ADDRESS_COUNT - 1)];
+        return this.reader.lookup(address, Object.class, this.result).prefixLength();
+    }
+}
@@ -33,6 +33,13 @@ fi
 check_command perl
 check_command mvn
 
+# The Java 22 classes of the multi-release JAR are only built on JDK 22+.
+java_version=$(mvn -v | sed -n 's/^Java version: \([0-9]*\).*/\1/p')
+if [ "$java_version" -lt 22 ]; then
+    echo "Error: Releases must be built with JDK 22 or later (found $java_version)."
+    exit 1
+fi
+
 # Check that we're not on the main branch
 current_branch=$(git branch --show-current)
 if [ "$current_branch" = "main" ]; then
@@ -119,6 +126,7 @@ if [ "$should_continue" != "y" ]; then
 fi
 
 mvn versions:set -DnewVersion="$version"
+mvn -f processor/pom.xml versions:set -DnewVersion="$version"
 
 perl -pi -e "s/(?<=<version>)[^<]*/$version/" README.md
 perl -pi -e "s/(?<=com\.maxmind\.db\:maxmind-db\:)\d+\.\d+\.\d+([\w\-]+)?/$version/" README.md
@@ -133,10 +141,12 @@ if [ "$should_commit" != "y" ]; then
     echo "Aborting"
     exit 1
 fi
-git add README.md pom.xml
+git add README.md pom.xml processor/pom.xml
 git commit -m "Preparing for $version"
 
 mvn clean deploy
+# The processor's tests run against the reader installed by the deploy above.
+mvn -f processor/pom.xml clean deploy
 
 rm -fr ".gh-pages/doc/$tag"
 cp -r target/reports/apidocs ".gh-pages/doc/$tag"
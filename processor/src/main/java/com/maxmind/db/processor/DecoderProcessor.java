@@ -0,0 +1,453 @@
+package com.maxmind.db.processor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code com.maxmind.db.GeneratedDecoder} for each class that
+ * uses the MaxMind DB deserialization annotations, so that the reader creates
+ * instances of the class without reflection.
+ *
+ * <p>The constructor and creator method are chosen as the reader would choose
+ * them through reflection, and the parameters are named in the same way,
+ * except that a parameter's name in the source is used even if the class is
+ * not compiled with <code>-parameters</code>. Errors that the reader would
+ * report when it first decodes the class are reported at compile time
+ * instead. No decoder is generated for a class that the generated code could
+ * not call, e.g., a private class, or whose constructor has parameters of
+ * types the reader does not resolve itself, e.g., type variables. Such
+ * classes are still decoded through reflection.
+ */
+@SupportedAnnotationTypes({
+    DecoderProcessor.CONSTRUCTOR,
+    DecoderProcessor.PARAMETER,
+    DecoderProcessor.CREATOR,
+    DecoderProcessor.IP_ADDRESS,
+    DecoderProcessor.NETWORK,
+})
+public final class DecoderProcessor extends AbstractProcessor {
+    static final String CONSTRUCTOR = "com.maxmind.db.MaxMindDbConstructor";
+    static final String PARAMETER = "com.maxmind.db.MaxMindDbParameter";
+    static final String CREATOR = "com.maxmind.db.MaxMindDbCreator";
+    static final String IP_ADDRESS = "com.maxmind.db.MaxMindDbIpAddress";
+    static final String NETWORK = "com.maxmind.db.MaxMindDbNetwork";
+
+    // Must match the suffix the reader looks for.
+    static final String SUFFIX = "_MaxMindDbDecoder";
+
+    private final Set<String> generated = new HashSet<>();
+
+    /**
+     * Creates the processor. It is created by the compiler.
+     */
+    public DecoderProcessor() {
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        var types = new LinkedHashSet<TypeElement>();
+        for (var annotation : annotations) {
+            for (var element : round.getElementsAnnotatedWith(annotation)) {
+                var type = enclosingClass(element);
+                if (type != null) {
+                    types.add(type);
+                }
+            }
+        }
+        for (var type : types) {
+            var name = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+            if (this.generated.add(name)) {
+                this.generate(type);
+            }
+        }
+        // Other processors may also handle the annotations.
+        return false;
+    }
+
+    private static TypeElement enclosingClass(Element element) {
+        for (var e = element; e != null; e = e.getEnclosingElement()) {
+            switch (e.getKind()) {
+                case CLASS, ENUM, RECORD:
+                    return (TypeElement) e;
+                case INTERFACE, ANNOTATION_TYPE, PACKAGE:
+                    return null;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    private void generate(TypeElement type) {
+        var reason = unsupportedReason(type);
+        if (reason != null) {
+            this.note(type, reason);
+            return;
+        }
+
+        List<DecoderWriter.Parameter> parameters = null;
+        var constructor = this.findConstructor(type);
+        if (constructor != null) {
+            parameters = this.parameters(type, constructor);
+            if (parameters == null) {
+                return;
+            }
+        }
+
+        DecoderWriter.Creator creator = null;
+        var creatorMethod = findCreatorMethod(type);
+        if (creatorMethod != null) {
+            creator = this.creator(type, creatorMethod);
+            if (creator == null) {
+                return;
+            }
+        }
+
+        var packageName = this.processingEnv.getElementUtils().getPackageOf(type)
+            .getQualifiedName().toString();
+        var decoder = new DecoderWriter.Decoder(
+            packageName,
+            decoderName(type),
+            type.getQualifiedName().toString(),
+            parameters,
+            creator
+        );
+        var qualifiedName = packageName.isEmpty()
+            ? decoder.decoderName()
+            : packageName + "." + decoder.decoderName();
+        try {
+            var file = this.processingEnv.getFiler().createSourceFile(qualifiedName, type);
+            try (var out = file.openWriter()) {
+                new DecoderWriter(out).write(decoder);
+            }
+        } catch (IOException e) {
+            this.error(type, "Unable to write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private static String unsupportedReason(TypeElement type) {
+        if (!type.getTypeParameters().isEmpty()) {
+            return "it is generic";
+        }
+        for (Element e = type; e instanceof TypeElement t; e = e.getEnclosingElement()) {
+            if (t.getNestingKind() == NestingKind.LOCAL
+                || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                return "it is a local class";
+            }
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return "it is private";
+            }
+            if (t.getNestingKind() == NestingKind.MEMBER
+                && !t.getModifiers().contains(Modifier.STATIC)
+                && t.getKind() == ElementKind.CLASS) {
+                return "it is an inner class";
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Finds the constructor as the reader's Decoder.findConstructor does, or
+     * returns null if there is none.
+     */
+    private ExecutableElement findConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+        var constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        var publicConstructors = new ArrayList<ExecutableElement>();
+        for (var constructor : constructors) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                publicConstructors.add(constructor);
+            }
+        }
+        for (var constructor : publicConstructors) {
+            if (annotation(constructor, CONSTRUCTOR) != null) {
+                return constructor;
+            }
+        }
+        if (type.getKind() == ElementKind.RECORD) {
+            var canonical = this.canonicalConstructor(type, constructors);
+            if (canonical != null) {
+                return canonical.getModifiers().contains(Modifier.PRIVATE) ? null : canonical;
+            }
+        }
+        if (publicConstructors.size() == 1) {
+            return publicConstructors.get(0);
+        }
+        return null;
+    }
+
+    private ExecutableElement canonicalConstructor(
+        TypeElement type,
+        List<ExecutableElement> constructors
+    ) {
+        var types = this.processingEnv.getTypeUtils();
+        var components = type.getRecordComponents();
+        for (var constructor : constructors) {
+            var parameters = constructor.getParameters();
+            if (parameters.size() != components.size()) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < parameters.size() && matches; i++) {
+                matches = types.isSameType(
+                    types.erasure(parameters.get(i).asType()),
+                    types.erasure(components.get(i).asType()));
+            }
+            if (matches) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Returns the constructor's parameters, or null if no decoder should be
+     * generated.
+     */
+    private List<DecoderWriter.Parameter> parameters(
+        TypeElement type,
+        ExecutableElement constructor
+    ) {
+        var elements = this.processingEnv.getElementUtils();
+        var parameters = new ArrayList<DecoderWriter.Parameter>();
+        var index = 0;
+        for (var parameter : constructor.getParameters()) {
+            var i = index++;
+            var typeName = this.erasure(parameter.asType());
+            var typeArguments = this.typeArguments(parameter.asType());
+            if (typeName == null || typeArguments == null) {
+                this.note(type, "parameter " + parameter.getSimpleName()
+                    + " has a type that is resolved when decoding");
+                return null;
+            }
+
+            var injection = this.injection(type, i, parameter);
+            if (injection == null) {
+                return null;
+            }
+            var parameterAnnotation = annotation(parameter, PARAMETER);
+            if (!injection.isEmpty()) {
+                if (parameterAnnotation != null) {
+                    this.error(parameter, "Parameter index " + i + " on class "
+                        + type.getQualifiedName() + " cannot have both @MaxMindDbParameter "
+                        + "and a lookup context annotation.");
+                    return null;
+                }
+                parameters.add(new DecoderWriter.Parameter(
+                    "null", typeName, typeArguments, "null", injection));
+                continue;
+            }
+
+            String name = null;
+            String defaultValue = null;
+            if (parameterAnnotation != null) {
+                name = (String) value(parameterAnnotation, "name");
+                if ((Boolean) value(parameterAnnotation, "useDefault")) {
+                    defaultValue = (String) value(parameterAnnotation, "defaultValue");
+                }
+            }
+            if (name == null) {
+                var components = type.getRecordComponents();
+                name = type.getKind() == ElementKind.RECORD && i < components.size()
+                    ? components.get(i).getSimpleName().toString()
+                    : parameter.getSimpleName().toString();
+            }
+            parameters.add(new DecoderWriter.Parameter(
+                elements.getConstantExpression(name),
+                typeName,
+                typeArguments,
+                defaultValue != null ? elements.getConstantExpression(defaultValue) : "null",
+                null
+            ));
+        }
+        return parameters;
+    }
+
+    /*
+     * Returns the parameter's lookup context annotation, an empty string if
+     * it has none, or null if it is invalid.
+     */
+    private String injection(TypeElement type, int index, VariableElement parameter) {
+        var ipAddress = annotation(parameter, IP_ADDRESS) != null;
+        var network = annotation(parameter, NETWORK) != null;
+        if (ipAddress && network) {
+            this.error(parameter,
+                "Constructor parameters may have at most one lookup context annotation.");
+            return null;
+        }
+        if (!ipAddress && !network) {
+            return "";
+        }
+        var parameterType = parameter.asType();
+        var isString = "java.lang.String".equals(this.erasure(parameterType));
+        if (ipAddress && !isString && !this.isAssignable(parameterType, "java.net.InetAddress")) {
+            this.error(parameter, "Parameter index " + index + " on class "
+                + type.getQualifiedName() + " annotated with @MaxMindDbIpAddress must be of "
+                + "type java.net.InetAddress or java.lang.String.");
+            return null;
+        }
+        if (network && !isString && !this.isAssignable(parameterType, "com.maxmind.db.Network")) {
+            this.error(parameter, "Parameter index " + index + " on class "
+                + type.getQualifiedName() + " annotated with @MaxMindDbNetwork must be of "
+                + "type com.maxmind.db.Network or java.lang.String.");
+            return null;
+        }
+        return ipAddress ? IP_ADDRESS : NETWORK;
+    }
+
+    private boolean isAssignable(TypeMirror type, String className) {
+        var element = this.processingEnv.getElementUtils().getTypeElement(className);
+        return element != null
+            && this.processingEnv.getTypeUtils().isAssignable(type, element.asType());
+    }
+
+    private static ExecutableElement findCreatorMethod(TypeElement type) {
+        for (var method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (annotation(method, CREATOR) != null) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Returns the creator, or null if it is invalid or cannot be called.
+     */
+    private DecoderWriter.Creator creator(TypeElement type, ExecutableElement method) {
+        var prefix = "Creator method " + method.getSimpleName() + " on class "
+            + type.getQualifiedName();
+        if (!method.getModifiers().contains(Modifier.STATIC)) {
+            this.error(method, prefix + " must be static.");
+            return null;
+        }
+        if (method.getParameters().size() != 1) {
+            this.error(method, prefix + " must have exactly one parameter.");
+            return null;
+        }
+        var types = this.processingEnv.getTypeUtils();
+        if (!types.isAssignable(types.erasure(method.getReturnType()),
+            types.erasure(type.asType()))) {
+            this.error(method, prefix + " must return " + type.getQualifiedName()
+                + " or a subtype.");
+            return null;
+        }
+        if (method.getModifiers().contains(Modifier.PRIVATE)) {
+            this.note(type, "its creator method is private");
+            return null;
+        }
+        var parameterType = this.erasure(method.getParameters().get(0).asType());
+        if (parameterType == null) {
+            this.note(type, "its creator method's parameter type is resolved when decoding");
+            return null;
+        }
+        return new DecoderWriter.Creator(method.getSimpleName().toString(), parameterType);
+    }
+
+    /*
+     * Returns the source name of the type's erasure, or null if it is not a
+     * class, array, or primitive type, e.g., a type variable.
+     */
+    private String erasure(TypeMirror type) {
+        var kind = type.getKind();
+        if (kind.isPrimitive()) {
+            return type.toString();
+        }
+        if (kind == TypeKind.ARRAY) {
+            var component = ((javax.lang.model.type.ArrayType) type).getComponentType();
+            var name = this.erasure(component);
+            return name != null ? name + "[]" : null;
+        }
+        if (kind == TypeKind.DECLARED) {
+            var element = (TypeElement) ((DeclaredType) type).asElement();
+            return element.getQualifiedName().toString();
+        }
+        return null;
+    }
+
+    /*
+     * Returns the source names of the type arguments of a declared type, or
+     * null if the reader would not resolve them to classes, e.g., wildcards.
+     */
+    private List<String> typeArguments(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return List.of();
+        }
+        var names = new ArrayList<String>();
+        for (var argument : ((DeclaredType) type).getTypeArguments()) {
+            if (argument.getKind() != TypeKind.DECLARED
+                || !((DeclaredType) argument).getTypeArguments().isEmpty()) {
+                return null;
+            }
+            names.add(this.erasure(argument));
+        }
+        return names;
+    }
+
+    private static String decoderName(TypeElement type) {
+        var name = new StringBuilder(type.getSimpleName());
+        for (var e = type.getEnclosingElement(); !(e instanceof PackageElement);
+             e = e.getEnclosingElement()) {
+            name.insert(0, e.getSimpleName() + "_");
+        }
+        return name + SUFFIX;
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (var mirror : element.getAnnotationMirrors()) {
+            var annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        var values = this.processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        for (var entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private void note(TypeElement type, String reason) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+            "Not generating a MaxMind DB decoder for " + type.getQualifiedName() + " as "
+                + reason + ". It is decoded through reflection.", type);
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,177 @@
+package com.maxmind.db.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the source of a generated decoder.
+ */
+final class DecoderWriter {
+    private static final String DECODER = "com.maxmind.db.GeneratedDecoder";
+    private static final String PARAMETER = DECODER + ".Parameter";
+
+    /**
+     * A constructor parameter.
+     *
+     * @param name          the parameter's key, as a string literal, or
+     *                      <code>null</code>
+     * @param type          the erasure of the parameter's type
+     * @param typeArguments the erasures of the type arguments of the
+     *                      parameter's type
+     * @param defaultValue  the default value, as a string literal, or
+     *                      <code>null</code>
+     * @param injection     the name of the lookup context annotation, or
+     *                      null
+     */
+    record Parameter(
+        String name,
+        String type,
+        List<String> typeArguments,
+        String defaultValue,
+        String injection
+    ) {
+    }
+
+    /**
+     * A creator method.
+     *
+     * @param name          the method's name
+     * @param parameterType the erasure of the method's parameter type
+     */
+    record Creator(String name, String parameterType) {
+    }
+
+    /**
+     * A decoder to generate.
+     *
+     * @param packageName  the package of the decoded class and the decoder
+     * @param decoderName  the simple name of the decoder
+     * @param typeName     the canonical name of the decoded class
+     * @param parameters   the constructor parameters, or null if the class
+     *                     has no usable constructor
+     * @param creator      the creator method, or null
+     */
+    record Decoder(
+        String packageName,
+        String decoderName,
+        String typeName,
+        List<Parameter> parameters,
+        Creator creator
+    ) {
+    }
+
+    private final Writer out;
+
+    DecoderWriter(Writer out) {
+        this.out = out;
+    }
+
+    void write(Decoder decoder) throws IOException {
+        if (!decoder.packageName().isEmpty()) {
+            this.line("package " + decoder.packageName() + ";");
+            this.line("");
+        }
+        this.line("/**");
+        this.line(" * The MaxMind DB decoder for {@link " + decoder.typeName() + "}.");
+        this.line(" * Generated by the MaxMind DB annotation processor. Do not edit.");
+        this.line(" */");
+        this.line("public final class " + decoder.decoderName()
+            + " implements " + DECODER + "<" + decoder.typeName() + "> {");
+        if (decoder.parameters() != null) {
+            this.writeParameters(decoder.parameters());
+            this.line("");
+        }
+        this.line("    @java.lang.Override");
+        this.line("    public java.lang.Class<" + decoder.typeName() + "> type() {");
+        this.line("        return " + decoder.typeName() + ".class;");
+        this.line("    }");
+        this.line("");
+        this.line("    @java.lang.Override");
+        this.line("    public java.util.List<" + PARAMETER + "> parameters() {");
+        this.line("        return " + (decoder.parameters() != null ? "PARAMETERS" : "null") + ";");
+        this.line("    }");
+        this.line("");
+        this.writeNewInstance(decoder);
+        if (decoder.creator() != null) {
+            this.writeCreator(decoder.typeName(), decoder.creator());
+        }
+        this.line("}");
+    }
+
+    private void writeParameters(List<Parameter> parameters) throws IOException {
+        this.line("    private static final java.util.List<" + PARAMETER + "> PARAMETERS =");
+        if (parameters.isEmpty()) {
+            this.line("        java.util.List.of();");
+            return;
+        }
+        this.line("        java.util.List.of(");
+        for (int i = 0; i < parameters.size(); i++) {
+            var parameter = parameters.get(i);
+            var typeArguments = new StringBuilder();
+            for (var typeArgument : parameter.typeArguments()) {
+                if (typeArguments.length() > 0) {
+                    typeArguments.append(", ");
+                }
+                typeArguments.append(typeArgument).append(".class");
+            }
+            this.line("            new " + PARAMETER + "(");
+            this.line("                " + parameter.name() + ",");
+            this.line("                " + parameter.type() + ".class,");
+            this.line("                new java.lang.Class<?>[] {" + typeArguments + "},");
+            this.line("                " + parameter.defaultValue() + ",");
+            this.line("                " + (parameter.injection() != null
+                ? parameter.injection() + ".class" : "null"));
+            this.line("            )" + (i < parameters.size() - 1 ? "," : ""));
+        }
+        this.line("        );");
+    }
+
+    private void writeNewInstance(Decoder decoder) throws IOException {
+        this.line("    @java.lang.Override");
+        this.line("    @java.lang.SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        this.line("    public " + decoder.typeName()
+            + " newInstance(java.lang.Object[] arguments) {");
+        if (decoder.parameters() == null) {
+            this.line("        throw new java.lang.UnsupportedOperationException(");
+            this.line("            \"" + decoder.typeName()
+                + " does not have a usable constructor.\");");
+            this.line("    }");
+            return;
+        }
+        var parameters = decoder.parameters();
+        if (parameters.isEmpty()) {
+            this.line("        return new " + decoder.typeName() + "();");
+            this.line("    }");
+            return;
+        }
+        this.line("        return new " + decoder.typeName() + "(");
+        for (int i = 0; i < parameters.size(); i++) {
+            // Casting to a primitive type unboxes the argument.
+            this.line("            (" + parameters.get(i).type() + ") arguments[" + i + "]"
+                + (i < parameters.size() - 1 ? "," : ""));
+        }
+        this.line("        );");
+        this.line("    }");
+    }
+
+    private void writeCreator(String typeName, Creator creator) throws IOException {
+        this.line("");
+        this.line("    @java.lang.Override");
+        this.line("    public java.lang.Class<?> creatorParameterType() {");
+        this.line("        return " + creator.parameterType() + ".class;");
+        this.line("    }");
+        this.line("");
+        this.line("    @java.lang.Override");
+        this.line("    @java.lang.SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        this.line("    public " + typeName + " create(java.lang.Object value) {");
+        this.line("        return " + typeName + "." + creator.name()
+            + "((" + creator.parameterType() + ") value);");
+        this.line("    }");
+    }
+
+    private void line(String line) throws IOException {
+        this.out.write(line);
+        this.out.write('\n');
+    }
+}
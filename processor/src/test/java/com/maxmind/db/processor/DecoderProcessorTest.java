@@ -0,0 +1,249 @@
+package com.maxmind.db.processor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.maxmind.db.GeneratedDecoder;
+import com.maxmind.db.MaxMindDbIpAddress;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DecoderProcessorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConstructorDecoder() throws Exception {
+        var diagnostics = this.compile("com/example/City.java", """
+            package com.example;
+
+            import com.maxmind.db.MaxMindDbConstructor;
+            import com.maxmind.db.MaxMindDbIpAddress;
+            import com.maxmind.db.MaxMindDbParameter;
+            import java.net.InetAddress;
+            import java.util.List;
+            import java.util.Map;
+
+            public class City {
+                public final Object[] values;
+
+                public City(String unused) {
+                    this.values = null;
+                }
+
+                @MaxMindDbConstructor
+                public City(
+                    @MaxMindDbParameter(name = "name") String name,
+                    @MaxMindDbParameter(name = "population", useDefault = true,
+                        defaultValue = "5") int population,
+                    List<String> tags,
+                    @MaxMindDbParameter(name = "counts") Map<String, Long> counts,
+                    @MaxMindDbIpAddress InetAddress ip
+                ) {
+                    this.values = new Object[] {name, population, tags, counts, ip};
+                }
+            }
+            """);
+        assertTrue(diagnostics.isEmpty(), diagnostics.toString());
+
+        var decoder = this.load("com.example.City");
+        var parameters = decoder.parameters();
+        assertEquals(5, parameters.size());
+        assertParameter(parameters.get(0), "name", String.class, null);
+        assertParameter(parameters.get(1), "population", int.class, "5");
+        assertParameter(parameters.get(2), "tags", List.class, null, String.class);
+        assertParameter(parameters.get(3), "counts", Map.class, null, String.class, Long.class);
+        assertParameter(parameters.get(4), null, InetAddress.class, null);
+        assertEquals(MaxMindDbIpAddress.class, parameters.get(4).injection());
+        assertNull(decoder.creatorParameterType());
+
+        var ip = InetAddress.getByName("1.2.3.4");
+        var arguments = new Object[] {"Foo", 7, List.of("a"), Map.of("b", 1L), ip};
+        var city = decoder.newInstance(arguments);
+        assertArrayEquals(arguments, (Object[]) city.getClass().getField("values").get(city));
+    }
+
+    @Test
+    public void testRecordAndCreatorDecoders() throws Exception {
+        var diagnostics = this.compile("com/example/Outer.java", """
+            package com.example;
+
+            import com.maxmind.db.MaxMindDbCreator;
+            import com.maxmind.db.MaxMindDbParameter;
+
+            public class Outer {
+                public record Location(
+                    @MaxMindDbParameter(name = "lat") double latitude,
+                    double longitude
+                ) {
+                }
+
+                public enum Kind {
+                    A, B;
+
+                    @MaxMindDbCreator
+                    public static Kind of(String value) {
+                        return valueOf(value);
+                    }
+                }
+            }
+            """);
+        assertTrue(diagnostics.isEmpty(), diagnostics.toString());
+
+        var location = this.load("com.example.Outer$Location");
+        assertEquals("com.example.Outer_Location_MaxMindDbDecoder",
+            location.getClass().getName());
+        assertParameter(location.parameters().get(0), "lat", double.class, null);
+        assertParameter(location.parameters().get(1), "longitude", double.class, null);
+        assertEquals(
+            location.type().getConstructor(double.class, double.class).newInstance(1.5, 2.5),
+            location.newInstance(new Object[] {1.5, 2.5}));
+
+        var kind = this.load("com.example.Outer$Kind");
+        assertNull(kind.parameters());
+        assertEquals(String.class, kind.creatorParameterType());
+        assertEquals("B", ((Enum<?>) kind.create("B")).name());
+    }
+
+    @Test
+    public void testSkipsUnsupportedClasses() throws Exception {
+        var diagnostics = this.compile("com/example/Skipped.java", """
+            package com.example;
+
+            import com.maxmind.db.MaxMindDbParameter;
+            import java.util.List;
+
+            public class Skipped {
+                private record Private(@MaxMindDbParameter(name = "a") String a) {
+                }
+
+                public record Generic<T>(@MaxMindDbParameter(name = "a") T a) {
+                }
+
+                public record Wildcard(@MaxMindDbParameter(name = "a") List<?> a) {
+                }
+            }
+            """);
+        assertEquals(3, diagnostics.size(), diagnostics.toString());
+        for (var diagnostic : diagnostics) {
+            assertEquals(Diagnostic.Kind.NOTE, diagnostic.getKind());
+        }
+        try (var files = Files.walk(this.tempDir.resolve("generated"))) {
+            assertFalse(files.anyMatch(Files::isRegularFile));
+        }
+    }
+
+    @Test
+    public void testReportsInvalidAnnotations() throws Exception {
+        var diagnostics = this.compile("com/example/Invalid.java", """
+            package com.example;
+
+            import com.maxmind.db.MaxMindDbCreator;
+            import com.maxmind.db.MaxMindDbIpAddress;
+            import com.maxmind.db.MaxMindDbNetwork;
+            import com.maxmind.db.MaxMindDbParameter;
+
+            public class Invalid {
+                public record Both(
+                    @MaxMindDbParameter(name = "ip") @MaxMindDbIpAddress String ip
+                ) {
+                }
+
+                public record WrongType(@MaxMindDbNetwork Integer network) {
+                }
+
+                public static class NotStatic {
+                    @MaxMindDbCreator
+                    public NotStatic of(String value) {
+                        return this;
+                    }
+                }
+            }
+            """);
+        var errors = new ArrayList<String>();
+        for (var diagnostic : diagnostics) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        assertEquals(3, errors.size(), errors.toString());
+        var messages = errors.toString();
+        assertTrue(messages.contains("cannot have both @MaxMindDbParameter"), messages);
+        assertTrue(messages.contains("must be of type com.maxmind.db.Network"), messages);
+        assertTrue(messages.contains("must be static"), messages);
+    }
+
+    private static void assertParameter(
+        GeneratedDecoder.Parameter parameter,
+        String name,
+        Class<?> type,
+        String defaultValue,
+        Class<?>... typeArguments
+    ) {
+        assertEquals(name, parameter.name());
+        assertEquals(type, parameter.type());
+        assertEquals(defaultValue, parameter.defaultValue());
+        assertArrayEquals(typeArguments, parameter.typeArguments());
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(String path, String source)
+        throws IOException, URISyntaxException {
+        var sourceFile = this.tempDir.resolve("src").resolve(path);
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source);
+        var classes = Files.createDirectories(this.tempDir.resolve("classes"));
+        var generated = Files.createDirectories(this.tempDir.resolve("generated"));
+
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            var task = compiler.getTask(null, fileManager, diagnostics, List.of(
+                "-classpath", readerClassPath(),
+                "-d", classes.toString(),
+                "-s", generated.toString(),
+                // The generated code compiles without warnings.
+                "-Xlint:all,-processing",
+                "-Werror"
+            ), null, fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(List.of(new DecoderProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics();
+    }
+
+    private GeneratedDecoder<?> load(String className) throws Exception {
+        var loader = new URLClassLoader(
+            new java.net.URL[] {this.tempDir.resolve("classes").toUri().toURL()},
+            GeneratedDecoder.class.getClassLoader());
+        var cls = Class.forName(className, true, loader);
+        var decoderName = cls.getPackageName() + "."
+            + cls.getName().substring(cls.getPackageName().length() + 1).replace('$', '_')
+            + DecoderProcessor.SUFFIX;
+        var decoder = (GeneratedDecoder<?>) Class.forName(decoderName, true, loader)
+            .getConstructor().newInstance();
+        assertEquals(cls, decoder.type());
+        return decoder;
+    }
+
+    private static String readerClassPath() throws URISyntaxException {
+        var location = GeneratedDecoder.class.getProtectionDomain().getCodeSource().getLocation();
+        return new File(location.toURI()).getPath();
+    }
+}
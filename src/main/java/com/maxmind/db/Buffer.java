@@ -1,20 +1,30 @@
 package com.maxmind.db;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
 
 /**
- * A generic buffer abstraction that supports sequential and random access
- * to binary data. Implementations may be backed by a single {@link
- * java.nio.ByteBuffer} or multiple buffers for larger capacities.
+ * A generic buffer abstraction that supports random access to binary data.
+ * Implementations may be backed by a single {@link java.nio.ByteBuffer} or
+ * multiple buffers for larger capacities. On Java 22 and later, mapped files
+ * are backed by a single <code>java.lang.foreign.MemorySegment</code>.
  *
  * <p>This interface is designed to provide a long-based API while
  * remaining compatible with the limitations of underlying storage.
  *
+ * <p>All reads are at an absolute index, and a buffer has no position or
+ * limit. None of the methods modify the state of the buffer or of the
+ * underlying {@link java.nio.ByteBuffer}s, so a single instance may be read
+ * from multiple threads at once.
+ *
  * <p>All underlying {@link java.nio.ByteBuffer}s are read-only to prevent
  * accidental modification of shared data.
  */
-sealed interface Buffer permits SingleBuffer, MultiBuffer {
+// Not sealed, as the segment-backed implementation is only in the Java 22
+// version of the multi-release JAR.
+interface Buffer {
     /**
      * Returns the total capacity of this buffer in bytes.
      *
@@ -23,86 +33,94 @@ sealed interface Buffer permits SingleBuffer, MultiBuffer {
     long capacity();
 
     /**
-     * Returns the current position of this buffer.
-     *
-     * @return the position
-     */
-    long position();
-
-    /**
-     * Sets the buffer's position.
-     *
-     * @param newPosition the new position
-     * @return this buffer
-     */
-    Buffer position(long newPosition);
-
-    /**
-     * Returns the current limit of this buffer.
-     *
-     * @return the limit
-     */
-    long limit();
-
-    /**
-     * Sets the buffer's limit.
+     * Reads the byte at the given index.
      *
-     * @param newLimit the new limit
-     * @return this buffer
+     * @param index the index to read from
+     * @return the byte value
      */
-    Buffer limit(long newLimit);
+    byte getByte(long index);
 
     /**
-     * Reads the next byte at the current position and advances the position.
+     * Reads the 4 bytes at the given index as a big-endian int.
      *
-     * @return the byte value
+     * @param index the index to read from
+     * @return the int value
      */
-    byte get();
+    int getInt(long index);
 
     /**
-     * Reads bytes into the given array and advances the position.
+     * Reads the 8 bytes at the given index as a big-endian long.
      *
-     * @param dst the destination array
-     * @return this buffer
+     * @param index the index to read from
+     * @return the long value
      */
-    Buffer get(byte[] dst);
+    long getLong(long index);
 
     /**
-     * Reads a byte at the given absolute index without changing the position.
+     * Reads the <code>size</code> bytes at the given index as a big-endian
+     * unsigned integer. Where the buffer allows it, this is a single 8-byte
+     * read that is shifted down, rather than a read per byte.
      *
      * @param index the index to read from
-     * @return the byte value
+     * @param size  the number of bytes to read, from 0 to 8
+     * @return the value, which is negative only when <code>size</code> is 8
+     *         and the most significant bit is set
      */
-    byte get(long index);
+    long getUnsigned(long index, int size);
 
     /**
-     * Reads the next 8 bytes as a double and advances the position.
+     * Reads the 3 bytes at the given index as a big-endian unsigned integer.
      *
-     * @return the double value
+     * @param index the index to read from
+     * @return the value
      */
-    double getDouble();
+    default int getUnsigned24(long index) {
+        return (int) this.getUnsigned(index, 3);
+    }
 
     /**
-     * Reads the next 4 bytes as a float and advances the position.
+     * Reads the 4 bytes at the given index as a big-endian unsigned integer.
      *
-     * @return the float value
+     * @param index the index to read from
+     * @return the value
      */
-    float getFloat();
+    default long getUnsigned32(long index) {
+        return this.getInt(index) & 0xFFFFFFFFL;
+    }
 
     /**
-     * Creates a new buffer that shares the same content but has independent
-     * position, limit, and mark values.
+     * Reads <code>dst.length</code> bytes starting at the given index into
+     * <code>dst</code>.
      *
-     * @return a duplicate buffer
+     * @param index the index to read from
+     * @param dst   the destination array
      */
-    Buffer duplicate();
+    void getBytes(long index, byte[] dst);
 
     /**
-     * Decodes the buffer's content into a string using the given decoder.
+     * Decodes the <code>length</code> bytes starting at the given index as a
+     * UTF-8 string. The bytes are copied out of the buffer first, so that no
+     * view of the underlying buffer is created per string.
      *
-     * @param decoder the charset decoder
+     * @param index   the index to read from
+     * @param length  the number of bytes to decode
+     * @param decoder a UTF-8 decoder, used for strings that are not ASCII.
+     *                As {@link CharsetDecoder} is not thread-safe, callers
+     *                on different threads must use different decoders.
      * @return the decoded string
-     * @throws CharacterCodingException if decoding fails
+     * @throws CharacterCodingException if the bytes are not valid UTF-8
      */
-    String decode(CharsetDecoder decoder) throws CharacterCodingException;
+    default String decodeString(long index, int length, CharsetDecoder decoder)
+        throws CharacterCodingException {
+        var bytes = new byte[length];
+        this.getBytes(index, bytes);
+        for (var b : bytes) {
+            if (b < 0) {
+                return decoder.decode(ByteBuffer.wrap(bytes)).toString();
+            }
+        }
+        // ASCII maps byte for byte to ISO-8859-1, which the String
+        // constructor copies without decoding.
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
 }
@@ -10,21 +10,32 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class BufferHolder {
     // DO NOT PASS OUTSIDE THIS CLASS. Doing so will remove thread safety.
     private final Buffer buffer;
 
+    // Set only for a mapped file.
+    private final MappedFile mappedFile;
+    // The number of users of the buffer: one for the Reader until it is
+    // closed and one for each lookup or iterator step in progress. Set only
+    // for a mapped file that is unmapped once released.
+    private final AtomicLong references;
+
     // Reasonable I/O buffer size for reading from InputStream.
     // This is separate from chunk size which determines MultiBuffer chunk allocation.
     private static final int IO_BUFFER_SIZE = 16 * 1024; // 16KB
 
     BufferHolder(File database, FileMode mode) throws IOException {
-        this(database, mode, MultiBuffer.DEFAULT_CHUNK_SIZE);
+        this(database, mode, MultiBuffer.DEFAULT_CHUNK_SIZE, false);
     }
 
-    BufferHolder(File database, FileMode mode, int chunkSize) throws IOException {
+    BufferHolder(File database, FileMode mode, int chunkSize, boolean unmapOnClose)
+        throws IOException {
         if (mode == FileMode.MEMORY) {
+            this.mappedFile = null;
+            this.references = null;
             // FileInputStream avoids the per-thread direct ByteBuffer cache that
             // FileChannel.read() populates when reading into a heap buffer. That cache
             // retains the largest direct buffer ever requested — under chunked MEMORY
@@ -55,12 +66,10 @@ final class BufferHolder {
         } else {
             try (RandomAccessFile file = new RandomAccessFile(database, "r");
                  FileChannel channel = file.getChannel()) {
-                long size = channel.size();
-                if (size <= chunkSize) {
-                    this.buffer = SingleBuffer.mapFromChannel(channel);
-                } else {
-                    this.buffer = MultiBuffer.mapFromChannel(channel);
-                }
+                var mappedFile = MappedFile.map(channel, chunkSize, unmapOnClose);
+                this.buffer = mappedFile.buffer();
+                this.mappedFile = mappedFile;
+                this.references = unmapOnClose ? new AtomicLong(1) : null;
             }
         }
     }
@@ -70,6 +79,8 @@ final class BufferHolder {
             throw new NullPointerException("Unable to use a NULL InputStream");
         }
         this.buffer = readFromStream(stream, chunkSize);
+        this.mappedFile = null;
+        this.references = null;
     }
 
     // Pre-allocates exactly len bytes. Used by file-backed MEMORY mode where the size is
@@ -136,27 +147,59 @@ final class BufferHolder {
     }
 
     /*
-     * Returns a duplicate of the underlying Buffer. The returned Buffer
-     * should not be shared between threads.
+     * Returns the underlying Buffer. It is only read at absolute indexes and
+     * has no mutable state, so the same instance is shared by all threads.
      */
     Buffer get() {
-        // The Java API docs for buffer state:
-        //
-        //     Buffers are not safe for use by multiple concurrent threads. If a buffer is to be
-        //     used by more than one thread then access to the buffer should be controlled by
-        //     appropriate synchronization.
-        //
-        // As such, you may think that this should be synchronized. This used to be the case, but
-        // we had several complaints about the synchronization causing contention, e.g.:
-        //
-        // * https://github.com/maxmind/MaxMind-DB-Reader-java/issues/65
-        // * https://github.com/maxmind/MaxMind-DB-Reader-java/pull/69
-        //
-        // Given that we are not modifying the original Buffer in any way and all currently
-        // known and most reasonably imaginable implementations of duplicate() only do read
-        // operations on the original buffer object, the risk of not synchronizing this call seems
-        // relatively low and worth taking for the performance benefit when lookups are being done
-        // from many threads.
-        return this.buffer.duplicate();
+        return this.buffer;
+    }
+
+    /*
+     * Reads the pages of the given range of a mapped file into memory. This
+     * does nothing for a buffer on the heap.
+     */
+    void load(long offset, long length) {
+        if (this.mappedFile != null && length > 0) {
+            this.mappedFile.load(offset, length);
+        }
+    }
+
+    /*
+     * Returns whether the pages of the given range of a mapped file are
+     * likely to be in memory. A buffer on the heap always is.
+     */
+    boolean isLoaded(long offset, long length) {
+        return this.mappedFile == null || length <= 0
+            || this.mappedFile.isLoaded(offset, length);
+    }
+
+    /*
+     * Registers a user of the buffer, which must call release() once it has
+     * finished reading it. This does nothing unless the file is unmapped
+     * once released.
+     */
+    void acquire() throws ClosedDatabaseException {
+        if (this.references == null) {
+            return;
+        }
+        long count;
+        do {
+            count = this.references.get();
+            if (count == 0) {
+                // The file has been unmapped.
+                throw new ClosedDatabaseException();
+            }
+        } while (!this.references.compareAndSet(count, count + 1));
+    }
+
+    /*
+     * Releases a reference to the buffer, either one taken with acquire() or
+     * the Reader's own one when it is closed. The file is unmapped when the
+     * last is released.
+     */
+    void release() {
+        if (this.references != null && this.references.decrementAndGet() == 0) {
+            this.mappedFile.unmap();
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.maxmind.db;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * A simplistic cache using a {@link ConcurrentHashMap}. There's no eviction
@@ -14,6 +15,7 @@ public class CHMCache implements NodeCache {
 
     private final int capacity;
     private final ConcurrentHashMap<CacheKey<?>, DecodedValue> cache;
+    private final CacheStatsRecorder stats;
     private boolean cacheFull = false;
 
     /**
@@ -31,15 +33,31 @@ public class CHMCache implements NodeCache {
      *            stops accepting new entries
      */
     public CHMCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a new cache with the specified capacity that reports its
+     * statistics. As the cache does not evict, no evictions are recorded.
+     *
+     * @param capacity
+     *            the maximum number of elements the cache can hold before it
+     *            stops accepting new entries
+     * @param stats
+     *            the recorder for the cache's statistics, or null to not
+     *            record them
+     */
+    public CHMCache(int capacity, CacheStatsRecorder stats) {
         this.capacity = capacity;
         this.cache = new ConcurrentHashMap<>(capacity);
+        this.stats = stats;
     }
 
     @Override
     public DecodedValue get(CacheKey<?> key, Loader loader) throws IOException {
         var value = cache.get(key);
         if (value == null) {
-            value = loader.load(key);
+            value = load(key, loader);
             if (!cacheFull) {
                 if (cache.size() < capacity) {
                     cache.put(key, value);
@@ -47,7 +65,42 @@ public class CHMCache implements NodeCache {
                     cacheFull = true;
                 }
             }
+        } else if (stats != null) {
+            stats.recordHit();
+        }
+        return value;
+    }
+
+    @Override
+    public void forEach(BiConsumer<CacheKey<?>, DecodedValue> action) {
+        cache.forEach(action);
+    }
+
+    @Override
+    public void putIfAbsent(CacheKey<?> key, DecodedValue value) {
+        if (!cacheFull) {
+            if (cache.size() < capacity) {
+                cache.putIfAbsent(key, value);
+            } else {
+                cacheFull = true;
+            }
+        }
+    }
+
+    private DecodedValue load(CacheKey<?> key, Loader loader) throws IOException {
+        if (stats == null) {
+            return loader.load(key);
+        }
+        stats.recordMiss();
+        long start = System.nanoTime();
+        DecodedValue value;
+        try {
+            value = loader.load(key);
+        } catch (IOException | RuntimeException e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
         }
+        stats.recordLoadSuccess(System.nanoTime() - start);
         return value;
     }
 
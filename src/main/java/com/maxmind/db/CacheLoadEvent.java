@@ -0,0 +1,38 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * A JFR event for a value decoded by a NodeCache loader after a cache miss.
+ */
+@Name("com.maxmind.db.CacheLoad")
+@Label("MaxMind DB Cache Load")
+@Category("MaxMind DB")
+@Description("A value decoded after a miss in a NodeCache")
+@Enabled(false)
+@StackTrace(false)
+final class CacheLoadEvent extends jdk.jfr.Event {
+    @Label("Offset")
+    @Description("The offset of the value in the database")
+    long offset;
+
+    @Label("Value Type")
+    @Description("The class the value was decoded to")
+    String valueType;
+
+    @Label("Record")
+    @Description("Whether this was a load for the record cache rather than for a value"
+        + " a record points to")
+    boolean record;
+
+    @Label("Bytes Read")
+    @Description("The size of the value, not including values it points to")
+    @DataAmount
+    long bytesRead;
+}
@@ -0,0 +1,174 @@
+package com.maxmind.db;
+
+import java.util.HashMap;
+
+/*
+ * Copies decoded values from the caches of a reader of one version of a
+ * database to those of a reader of another version, keeping only those whose
+ * encoding is unchanged.
+ *
+ * Cache keys hold absolute offsets, and the data section starts after the
+ * search tree, so a value at a given offset into the data section of the old
+ * database is compared with the value at the same offset into that of the
+ * new one. The value is unchanged if the bytes of its encoding are the same,
+ * and so are those of every value its pointers lead to. As pointers are
+ * themselves offsets into the data section, identical pointer bytes lead to
+ * the same offsets in both databases. Values are compared byte for byte
+ * rather than decoded.
+ *
+ * This class CANNOT be shared between threads.
+ */
+final class CacheMigration {
+    private final Buffer from;
+    private final long fromBase;
+    private final Buffer to;
+    private final long toBase;
+    // The length of the part of the data sections that can be compared.
+    private final long length;
+
+    // Whether the value at each data section offset compared so far is
+    // unchanged. Values are often reached from many others, e.g., a country
+    // shared by many cities, so each is only compared once.
+    private final HashMap<Long, Boolean> unchanged = new HashMap<>();
+
+    CacheMigration(
+        Buffer from,
+        long fromBase,
+        long fromEnd,
+        Buffer to,
+        long toBase,
+        long toEnd
+    ) {
+        this.from = from;
+        this.fromBase = fromBase;
+        this.to = to;
+        this.toBase = toBase;
+        this.length = Math.min(fromEnd - fromBase, toEnd - toBase);
+    }
+
+    /*
+     * Adds the unchanged values in source to target, under the keys for the
+     * new database, and returns how many were added.
+     */
+    long migrate(NodeCache source, NodeCache target) {
+        if (source == NoCache.getInstance() || target == NoCache.getInstance()) {
+            return 0;
+        }
+        var count = new long[1];
+        source.forEach((key, value) -> {
+            long offset = key.offset() - this.fromBase;
+            if (this.isUnchanged(offset)) {
+                target.putIfAbsent(
+                    new CacheKey<>(offset + this.toBase, key.cls(), key.type()),
+                    value
+                );
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /*
+     * Returns whether the value at the given data section offset is
+     * unchanged.
+     */
+    boolean isUnchanged(long offset) {
+        if (offset < 0 || offset >= this.length) {
+            // The value is not in the data section, e.g., it is in the
+            // metadata.
+            return false;
+        }
+        var known = this.unchanged.get(offset);
+        if (known != null) {
+            return known;
+        }
+        // A pointer back to a value being compared only occurs in a corrupt
+        // database, which is treated as changed.
+        this.unchanged.put(offset, false);
+        boolean result;
+        try {
+            long end = this.skip(offset);
+            result = end >= 0 && end <= this.length && this.sameBytes(offset, end);
+        } catch (InvalidDatabaseException | IndexOutOfBoundsException e) {
+            result = false;
+        }
+        this.unchanged.put(offset, result);
+        return result;
+    }
+
+    /*
+     * Returns the offset following the value at the given offset in the old
+     * database, or -1 if a value that a pointer leads to has changed.
+     */
+    private long skip(long offset) throws InvalidDatabaseException {
+        var ctrlByte = this.nextByte(offset++);
+        var type = Type.fromControlByte(ctrlByte);
+
+        if (type == Type.POINTER) {
+            var pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
+            var base = pointerSize == 4 ? 0L : ctrlByte & 0x7;
+            var packed = (base << (pointerSize * 8))
+                | this.from.getUnsigned(this.fromBase + offset, pointerSize);
+            var target = packed + Decoder.POINTER_VALUE_OFFSETS[pointerSize];
+            return this.isUnchanged(target) ? offset + pointerSize : -1;
+        }
+
+        if (type == Type.EXTENDED) {
+            var typeNum = this.nextByte(offset++) + 7;
+            if (typeNum < 8) {
+                throw new InvalidDatabaseException(
+                    "The MaxMind DB file's data section contains bad data: "
+                        + "extended type " + typeNum);
+            }
+            type = Type.get(typeNum);
+        }
+
+        long size = ctrlByte & 0x1f;
+        if (size >= 29) {
+            int bytes = (int) size - 28;
+            long value = this.from.getUnsigned(this.fromBase + offset, bytes);
+            offset += bytes;
+            size = switch (bytes) {
+                case 1 -> 29 + value;
+                case 2 -> 285 + value;
+                default -> 65821 + value;
+            };
+        }
+
+        long count = switch (type) {
+            case MAP -> size * 2;
+            case ARRAY -> size;
+            case BOOLEAN -> 0;
+            case CONTAINER, END_MARKER, EXTENDED -> throw new InvalidDatabaseException(
+                "The MaxMind DB file's data section contains bad data: "
+                    + "unexpected type " + type);
+            default -> {
+                // The value is size bytes of data.
+                offset += size;
+                yield 0;
+            }
+        };
+        for (long i = 0; i < count && offset >= 0; i++) {
+            offset = this.skip(offset);
+        }
+        return offset;
+    }
+
+    private int nextByte(long offset) {
+        if (offset >= this.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return 0xFF & this.from.getByte(this.fromBase + offset);
+    }
+
+    private boolean sameBytes(long start, long end) {
+        for (long i = start; i < end; i += 8) {
+            int size = (int) Math.min(8, end - i);
+            if (this.from.getUnsigned(this.fromBase + i, size)
+                != this.to.getUnsigned(this.toBase + i, size)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package com.maxmind.db;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link CacheStatsRecorder} that counts the events it receives. The counts
+ * are kept in {@link LongAdder}s, so recording from many threads at once does
+ * not contend on a single counter. Reading them is comparatively expensive
+ * and is meant for periodic reporting rather than the lookup path.
+ */
+public final class CacheStats implements CacheStatsRecorder {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTimeNanos = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates a new instance with all counts at zero.
+     */
+    public CacheStats() {
+    }
+
+    @Override
+    public void recordHit() {
+        this.hitCount.increment();
+    }
+
+    @Override
+    public void recordMiss() {
+        this.missCount.increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {
+        this.loadSuccessCount.increment();
+        this.totalLoadTimeNanos.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {
+        this.loadFailureCount.increment();
+        this.totalLoadTimeNanos.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordEviction() {
+        this.evictionCount.increment();
+    }
+
+    /**
+     * @return the number of lookups that found the value in the cache.
+     */
+    public long hitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find the value in the
+     *         cache.
+     */
+    public long missCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * @return the ratio of hits to lookups, or 1.0 if there have been no
+     *         lookups.
+     */
+    public double hitRate() {
+        long hits = this.hitCount();
+        long lookups = hits + this.missCount();
+        return lookups == 0 ? 1.0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the number of values decoded after a miss.
+     */
+    public long loadSuccessCount() {
+        return this.loadSuccessCount.sum();
+    }
+
+    /**
+     * @return the number of values that could not be decoded after a miss.
+     */
+    public long loadFailureCount() {
+        return this.loadFailureCount.sum();
+    }
+
+    /**
+     * @return the total time spent decoding values after misses, in
+     *         nanoseconds.
+     */
+    public long totalLoadTimeNanos() {
+        return this.totalLoadTimeNanos.sum();
+    }
+
+    /**
+     * @return the number of values evicted or not admitted to the cache.
+     */
+    public long evictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hitCount=" + this.hitCount()
+            + ", missCount=" + this.missCount()
+            + ", loadSuccessCount=" + this.loadSuccessCount()
+            + ", loadFailureCount=" + this.loadFailureCount()
+            + ", totalLoadTimeNanos=" + this.totalLoadTimeNanos()
+            + ", evictionCount=" + this.evictionCount()
+            + "}";
+    }
+}
@@ -0,0 +1,44 @@
+package com.maxmind.db;
+
+/**
+ * Receives the statistics of a {@link NodeCache}. An implementation may be
+ * passed to {@link CHMCache}, {@link TinyLfuCache}, or {@link StripedCache}
+ * to report their hits, misses, loads, and evictions, e.g., to a metrics
+ * library. {@link CacheStats} is an implementation that keeps counts.
+ *
+ * <p>The methods are called on the lookup path by any thread using the
+ * cache, so they must be thread-safe and should be cheap.
+ */
+public interface CacheStatsRecorder {
+    /**
+     * Records a lookup that found the value in the cache.
+     */
+    void recordHit();
+
+    /**
+     * Records a lookup that did not find the value in the cache.
+     */
+    void recordMiss();
+
+    /**
+     * Records a value that was decoded after a miss.
+     *
+     * @param loadTimeNanos the time taken to decode the value, in
+     *                      nanoseconds
+     */
+    void recordLoadSuccess(long loadTimeNanos);
+
+    /**
+     * Records a value that could not be decoded after a miss.
+     *
+     * @param loadTimeNanos the time taken until the decoding failed, in
+     *                      nanoseconds
+     */
+    void recordLoadFailure(long loadTimeNanos);
+
+    /**
+     * Records the eviction of a value from the cache, or the rejection of a
+     * value that was not admitted to the cache.
+     */
+    void recordEviction();
+}
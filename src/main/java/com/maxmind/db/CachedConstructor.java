@@ -1,14 +1,26 @@
 package com.maxmind.db;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.util.Map;
 
 record CachedConstructor<T>(
+    // Null for a class with a GeneratedDecoder.
     Constructor<T> constructor,
+    // The constructor as an (Object[])Object handle, or null if it could not
+    // be unreflected, in which case it is invoked reflectively. Null for a
+    // class with a GeneratedDecoder.
+    MethodHandle factory,
+    // The class's generated decoder, or null.
+    GeneratedDecoder<T> generatedDecoder,
     Class<?>[] parameterTypes,
     java.lang.reflect.Type[] parameterGenericTypes,
     Map<String, Integer> parameterIndexes,
     Object[] parameterDefaults,
     ParameterInjection[] parameterInjections,
-    boolean requiresLookupContext
+    boolean requiresLookupContext,
+    // The UTF-8 bytes of the keys in parameterIndexes, for keys stored inline.
+    KeyNameTable keyNames,
+    // The parameter indexes of the keys seen, by the offset they point to.
+    KeyPointerTable keyPointers
 ) {}
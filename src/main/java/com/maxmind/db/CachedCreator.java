@@ -1,5 +1,6 @@
 package com.maxmind.db;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 /**
@@ -7,10 +8,15 @@ import java.lang.reflect.Method;
  * A creator method is a static factory method annotated with {@link MaxMindDbCreator}
  * that converts a decoded value to the target type.
  *
- * @param method the static factory method annotated with {@link MaxMindDbCreator}
+ * @param method the static factory method annotated with {@link MaxMindDbCreator},
+ *               or null for a class with a {@link GeneratedDecoder}
+ * @param handle the creator method, or the generated decoder's create method, as an
+ *               (Object)Object handle, or null if the creator method could not be
+ *               unreflected, in which case it is invoked reflectively
  * @param parameterType the parameter type accepted by the creator method
  */
 record CachedCreator(
     Method method,
+    MethodHandle handle,
     Class<?> parameterType
 ) {}
@@ -0,0 +1,20 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * A JFR event for closing a Reader.
+ */
+@Name("com.maxmind.db.DatabaseClose")
+@Label("MaxMind DB Close")
+@Category("MaxMind DB")
+@Description("The closing of a MaxMind DB Reader")
+@Enabled(false)
+final class DatabaseCloseEvent extends jdk.jfr.Event {
+    @Label("Database Type")
+    String databaseType;
+}
@@ -0,0 +1,37 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * A JFR event for the creation of a Reader, including reading the database
+ * and building any lookup structures.
+ */
+@Name("com.maxmind.db.DatabaseOpen")
+@Label("MaxMind DB Open")
+@Category("MaxMind DB")
+@Description("The opening of a MaxMind DB by a Reader")
+@Enabled(false)
+final class DatabaseOpenEvent extends jdk.jfr.Event {
+    @Label("Source")
+    @Description("The name of the database file")
+    String source;
+
+    @Label("Database Type")
+    String databaseType;
+
+    @Label("File Mode")
+    String fileMode;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+    @Label("Node Count")
+    @Description("The number of nodes in the search tree")
+    long nodeCount;
+}
@@ -0,0 +1,38 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * A JFR event for a reload of a ReloadingReader, from opening the new
+ * database to publishing it, including any warm-up.
+ */
+@Name("com.maxmind.db.DatabaseReload")
+@Label("MaxMind DB Reload")
+@Category("MaxMind DB")
+@Description("The replacement of the database used by a ReloadingReader")
+@Enabled(false)
+final class DatabaseReloadEvent extends jdk.jfr.Event {
+    @Label("Source")
+    @Description("The path of the database file")
+    String source;
+
+    @Label("Database Type")
+    @Description("The type of the new database, if it could be opened")
+    String databaseType;
+
+    @Label("Migrated Values")
+    @Description("The number of cached values copied from the old database")
+    long migratedValues;
+
+    @Label("Succeeded")
+    @Description("Whether the new database was published")
+    boolean succeeded;
+
+    @Label("Failure")
+    @Description("Why the new database was rejected, if it was")
+    String failure;
+}
@@ -0,0 +1,40 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * A JFR event for resolving the record a search tree lookup points to,
+ * either from the record cache or by decoding it.
+ */
+@Name("com.maxmind.db.Decode")
+@Label("MaxMind DB Record Decode")
+@Category("MaxMind DB")
+@Description("The resolution of the data record for a lookup")
+@Enabled(false)
+@StackTrace(false)
+final class DecodeEvent extends jdk.jfr.Event {
+    @Label("Offset")
+    @Description("The offset of the record in the database")
+    long offset;
+
+    @Label("Record Type")
+    @Description("The class the record was decoded to")
+    String recordType;
+
+    @Label("Record Cache Hit")
+    @Description("Whether the record was found in the record cache")
+    boolean recordCacheHit;
+
+    @Label("Bytes Read")
+    @Description("The size of the record decoded directly by the lookup, not including"
+        + " values it points to. Records loaded through the record cache are reported"
+        + " by MaxMind DB Cache Load events instead.")
+    @DataAmount
+    long bytesRead;
+}
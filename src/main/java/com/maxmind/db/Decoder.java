@@ -2,6 +2,9 @@ package com.maxmind.db;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -28,10 +31,20 @@ class Decoder {
 
     private static final Charset UTF_8 = StandardCharsets.UTF_8;
 
-    private static final int[] POINTER_VALUE_OFFSETS = {0, 0, 1 << 11, (1 << 19) + (1 << 11), 0};
+    static final int[] POINTER_VALUE_OFFSETS = {0, 0, 1 << 11, (1 << 19) + (1 << 11), 0};
 
     // Sentinel to cache "no creator method exists" to avoid repeated method scanning
-    private static final CachedCreator NO_CREATOR = new CachedCreator(null, null);
+    private static final CachedCreator NO_CREATOR = new CachedCreator(null, null, null);
+
+    // The constructors of classes with a generated decoder, for arguments
+    // that need reflection's conversions. Each is only found once.
+    private static final ClassValue<Constructor<?>> REFLECTED_CONSTRUCTORS =
+        new ClassValue<>() {
+            @Override
+            protected Constructor<?> computeValue(Class<?> cls) {
+                return findConstructor(cls);
+            }
+        };
 
     private final NodeCache cache;
 
@@ -41,12 +54,15 @@ class Decoder {
 
     private final Buffer buffer;
 
+    // The offset of the next byte to decode. The buffer itself has no
+    // position, so this is what makes a decoder unsafe to share.
+    private long position;
+
     private final ConcurrentHashMap<Class<?>, CachedConstructor<?>> constructors;
 
     private final ConcurrentHashMap<Class<?>, CachedCreator> creators;
 
-    private final InetAddress lookupIp;
-    private final Network lookupNetwork;
+    private final LookupContext lookupContext;
 
     Decoder(NodeCache cache, Buffer buffer, long pointerBase) {
         this(
@@ -55,7 +71,6 @@ class Decoder {
             pointerBase,
             new ConcurrentHashMap<>(),
             new ConcurrentHashMap<>(),
-            null,
             null
         );
     }
@@ -72,7 +87,6 @@ class Decoder {
             pointerBase,
             constructors,
             new ConcurrentHashMap<>(),
-            null,
             null
         );
     }
@@ -83,19 +97,31 @@ class Decoder {
         long pointerBase,
         ConcurrentHashMap<Class<?>, CachedConstructor<?>> constructors,
         ConcurrentHashMap<Class<?>, CachedCreator> creators,
-        InetAddress lookupIp,
-        Network lookupNetwork
+        LookupContext lookupContext
     ) {
         this.cache = cache;
         this.pointerBase = pointerBase;
         this.buffer = buffer;
         this.constructors = constructors;
         this.creators = creators;
-        this.lookupIp = lookupIp;
-        this.lookupNetwork = lookupNetwork;
+        this.lookupContext = lookupContext;
     }
 
-    private final NodeCache.Loader cacheLoader = this::decode;
+    private final NodeCache.Loader cacheLoader = this::load;
+
+    private DecodedValue load(CacheKey<?> key) throws IOException {
+        var event = JfrEvents.beginCacheLoad();
+
+        var value = this.decode(key);
+
+        if (event != null && event.shouldCommit()) {
+            event.offset = key.offset();
+            event.valueType = key.cls().getName();
+            event.bytesRead = this.position - key.offset();
+            event.commit();
+        }
+        return value;
+    }
 
     <T> T decode(long offset, Class<T> cls) throws IOException {
         if (offset >= this.buffer.capacity()) {
@@ -104,7 +130,7 @@ class Decoder {
                     + "pointer larger than the database.");
         }
 
-        this.buffer.position(offset);
+        this.position = offset;
         return cls.cast(decode(cls, null).value());
     }
 
@@ -116,14 +142,14 @@ class Decoder {
                     + "pointer larger than the database.");
         }
 
-        this.buffer.position(offset);
+        this.position = offset;
         Class<T> cls = key.cls();
         return decode(cls, key.type());
     }
 
     private <T> DecodedValue decode(Class<T> cls, java.lang.reflect.Type genericType)
         throws IOException {
-        var ctrlByte = 0xFF & this.buffer.get();
+        var ctrlByte = 0xFF & this.nextByte();
 
         var type = Type.fromControlByte(ctrlByte);
 
@@ -131,16 +157,11 @@ class Decoder {
         // use the size to determine the length of the pointer and then follow
         // it.
         if (type.equals(Type.POINTER)) {
-            var pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
-            var base = pointerSize == 4 ? (byte) 0 : (byte) (ctrlByte & 0x7);
-            var packed = this.decodeInteger(base, pointerSize);
-            var pointer = packed + this.pointerBase + POINTER_VALUE_OFFSETS[pointerSize];
-
-            return decodePointer(pointer, cls, genericType);
+            return decodePointer(this.decodePointerTarget(ctrlByte), cls, genericType);
         }
 
         if (type.equals(Type.EXTENDED)) {
-            var nextByte = this.buffer.get();
+            var nextByte = this.nextByte();
 
             var typeNum = nextByte + 7;
 
@@ -154,21 +175,37 @@ class Decoder {
             type = Type.get(typeNum);
         }
 
+        int size = this.decodeSize(ctrlByte);
+
+        return new DecodedValue(this.decodeByType(type, size, cls, genericType));
+    }
+
+    private int decodeSize(int ctrlByte) {
         int size = ctrlByte & 0x1f;
         if (size >= 29) {
             size = switch (size) {
-                case 29 -> 29 + (0xFF & buffer.get());
+                case 29 -> 29 + (0xFF & this.nextByte());
                 case 30 -> 285 + decodeInteger(2);
                 default -> 65821 + decodeInteger(3);
             };
         }
+        return size;
+    }
 
-        return new DecodedValue(this.decodeByType(type, size, cls, genericType));
+    // Decodes the pointer that follows ctrlByte and returns the offset it
+    // points to.
+    private long decodePointerTarget(int ctrlByte) {
+        var pointerSize = ((ctrlByte >>> 3) & 0x3) + 1;
+        var base = pointerSize == 4 ? (byte) 0 : (byte) (ctrlByte & 0x7);
+        // A 4-byte pointer may exceed Integer.MAX_VALUE in databases
+        // larger than 2GB.
+        var packed = this.decodeLong(base, pointerSize);
+        return packed + this.pointerBase + POINTER_VALUE_OFFSETS[pointerSize];
     }
 
     DecodedValue decodePointer(long pointer, Class<?> cls, java.lang.reflect.Type genericType)
             throws IOException {
-        var position = buffer.position();
+        var position = this.position;
 
         var key = new CacheKey<>(pointer, cls, genericType);
         DecodedValue value;
@@ -178,11 +215,11 @@ class Decoder {
             value = cache.get(key, cacheLoader);
         }
 
-        buffer.position(position);
+        this.position = position;
         return value;
     }
 
-    private boolean requiresLookupContext(Class<?> cls) {
+    boolean requiresLookupContext(Class<?> cls) {
         if (cls == null
             || cls.equals(Object.class)
             || Map.class.isAssignableFrom(cls)
@@ -377,11 +414,9 @@ class Decoder {
         return value;
     }
 
-    private String decodeString(long size) throws CharacterCodingException {
-        var oldLimit = buffer.limit();
-        buffer.limit(buffer.position() + size);
-        var s = buffer.decode(utfDecoder);
-        buffer.limit(oldLimit);
+    private String decodeString(int size) throws CharacterCodingException {
+        var s = this.buffer.decodeString(this.position, size, this.utfDecoder);
+        this.position += size;
         return s;
     }
 
@@ -394,15 +429,23 @@ class Decoder {
     }
 
     private long decodeLong(int size) {
-        return Decoder.decodeLong(this.buffer, 0, size);
+        return this.decodeLong(0, size);
     }
 
-    static long decodeLong(Buffer buffer, int base, int size) {
-        long integer = base;
-        for (int i = 0; i < size; i++) {
-            integer = (integer << 8) | (buffer.get() & 0xFF);
+    private long decodeLong(int base, int size) {
+        if (size > 8) {
+            // Only malformed data is this long, but decode it the way it
+            // always has been: the leading bytes shift out of the value.
+            long integer = base;
+            for (int i = 0; i < size; i++) {
+                integer = (integer << 8) | (this.nextByte() & 0xFF);
+            }
+            return integer;
         }
-        return integer;
+        var value = this.buffer.getUnsigned(this.position, size);
+        this.position += size;
+        // Only pointers, of at most 4 bytes, have a base.
+        return ((long) base << (size * 8)) | value;
     }
 
     private long decodeUint32(int size) {
@@ -410,19 +453,7 @@ class Decoder {
     }
 
     private int decodeInteger(int size) {
-        return this.decodeInteger(0, size);
-    }
-
-    private int decodeInteger(int base, int size) {
-        return Decoder.decodeInteger(this.buffer, base, size);
-    }
-
-    static int decodeInteger(Buffer buffer, int base, int size) {
-        int integer = base;
-        for (int i = 0; i < size; i++) {
-            integer = (integer << 8) | (buffer.get() & 0xFF);
-        }
-        return integer;
+        return (int) this.decodeLong(size);
     }
 
     private BigInteger decodeBigInteger(int size) {
@@ -436,7 +467,9 @@ class Decoder {
                 "The MaxMind DB file's data section contains bad data: "
                     + "invalid size of double.");
         }
-        return this.buffer.getDouble();
+        var value = Double.longBitsToDouble(this.buffer.getLong(this.position));
+        this.position += 8;
+        return value;
     }
 
     private float decodeFloat(int size) throws InvalidDatabaseException {
@@ -445,7 +478,9 @@ class Decoder {
                 "The MaxMind DB file's data section contains bad data: "
                     + "invalid size of float.");
         }
-        return this.buffer.getFloat();
+        var value = Float.intBitsToFloat(this.buffer.getInt(this.position));
+        this.position += 4;
+        return value;
     }
 
     private static boolean decodeBoolean(int size)
@@ -571,6 +606,53 @@ class Decoder {
             return cached;
         }
 
+        var generated = GeneratedDecoders.get(cls);
+        var cachedConstructor = generated != null && generated.parameters() != null
+            ? generatedConstructorMetadata(generated)
+            : reflectedConstructorMetadata(cls);
+        @SuppressWarnings("unchecked")
+        var existing = (CachedConstructor<T>) this.constructors.putIfAbsent(cls, cachedConstructor);
+        return existing != null ? existing : cachedConstructor;
+    }
+
+    private <T> CachedConstructor<T> generatedConstructorMetadata(GeneratedDecoder<T> generated) {
+        var parameters = generated.parameters();
+        var count = parameters.size();
+        var parameterTypes = new Class<?>[count];
+        var parameterGenericTypes = new java.lang.reflect.Type[count];
+        var parameterIndexes = new HashMap<String, Integer>();
+        var parameterDefaults = new Object[count];
+        var parameterInjections = new ParameterInjection[count];
+        for (int i = 0; i < count; i++) {
+            var parameter = parameters.get(i);
+            parameterTypes[i] = parameter.type();
+            parameterGenericTypes[i] = GeneratedDecoders.genericType(parameter);
+            parameterInjections[i] = GeneratedDecoders.injection(parameter);
+            if (parameterInjections[i] != ParameterInjection.NONE) {
+                continue;
+            }
+            if (parameter.defaultValue() != null) {
+                parameterDefaults[i] = parseDefault(parameter.defaultValue(), parameterTypes[i]);
+            }
+            parameterIndexes.put(parameter.name(), i);
+        }
+
+        return new CachedConstructor<>(
+            null,
+            null,
+            generated,
+            parameterTypes,
+            parameterGenericTypes,
+            parameterIndexes,
+            parameterDefaults,
+            parameterInjections,
+            parametersRequireLookupContext(parameterTypes, parameterInjections),
+            new KeyNameTable(parameterIndexes),
+            new KeyPointerTable()
+        );
+    }
+
+    private <T> CachedConstructor<T> reflectedConstructorMetadata(Class<T> cls) {
         var constructor = findConstructor(cls);
 
         var parameterTypes = constructor.getParameterTypes();
@@ -578,7 +660,6 @@ class Decoder {
         var parameterIndexes = new HashMap<String, Integer>();
         var parameterDefaults = new Object[constructor.getParameterCount()];
         var parameterInjections = new ParameterInjection[constructor.getParameterCount()];
-        boolean requiresContext = false;
 
         var annotations = constructor.getParameterAnnotations();
         for (int i = 0; i < constructor.getParameterCount(); i++) {
@@ -588,7 +669,6 @@ class Decoder {
             var parameterAnnotation = getParameterAnnotation(annotations[i]);
 
             if (injection != ParameterInjection.NONE) {
-                requiresContext = true;
                 if (parameterAnnotation != null) {
                     throw new DeserializationException(
                         "Parameter index " + i + " on class " + cls.getName()
@@ -623,39 +703,46 @@ class Decoder {
             parameterIndexes.put(name, i);
         }
 
-        // Check for transitive context requirements: if any non-injection parameter type
-        // itself requires context (e.g., nested objects with @MaxMindDbIpAddress annotations),
-        // then this parent class also requires context to avoid incorrect caching.
-        if (!requiresContext) {
-            for (int i = 0; i < parameterTypes.length; i++) {
-                if (parameterInjections[i] == ParameterInjection.NONE) {
-                    if (shouldInstantiateFromContext(parameterTypes[i])) {
-                        requiresContext = true;
-                        break;
-                    }
-                }
-            }
-        }
-
-        var cachedConstructor = new CachedConstructor<>(
+        return new CachedConstructor<>(
             constructor,
+            constructorHandle(constructor),
+            null,
             parameterTypes,
             parameterGenericTypes,
             parameterIndexes,
             parameterDefaults,
             parameterInjections,
-            requiresContext
+            parametersRequireLookupContext(parameterTypes, parameterInjections),
+            new KeyNameTable(parameterIndexes),
+            new KeyPointerTable()
         );
-        @SuppressWarnings("unchecked")
-        var existing = (CachedConstructor<T>) this.constructors.putIfAbsent(cls, cachedConstructor);
-        return existing != null ? existing : cachedConstructor;
+    }
+
+    private boolean parametersRequireLookupContext(
+        Class<?>[] parameterTypes,
+        ParameterInjection[] parameterInjections
+    ) {
+        for (var injection : parameterInjections) {
+            if (injection != ParameterInjection.NONE) {
+                return true;
+            }
+        }
+        // Check for transitive context requirements: if any non-injection parameter type
+        // itself requires context (e.g., nested objects with @MaxMindDbIpAddress annotations),
+        // then this parent class also requires context to avoid incorrect caching.
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterInjections[i] == ParameterInjection.NONE
+                && shouldInstantiateFromContext(parameterTypes[i])) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private <T> Object decodeMapIntoObject(int size, Class<T> cls)
         throws IOException {
         var cachedConstructor = loadConstructorMetadata(cls);
 
-        var constructor = cachedConstructor.constructor();
         var parameterTypes = cachedConstructor.parameterTypes();
         var parameterGenericTypes = cachedConstructor.parameterGenericTypes();
         var parameterIndexes = cachedConstructor.parameterIndexes();
@@ -664,12 +751,9 @@ class Decoder {
 
         var parameters = new Object[parameterTypes.length];
         for (int i = 0; i < size; i++) {
-            var key = (String) this.decode(String.class, null).value();
-
-            var parameterIndex = parameterIndexes.get(key);
-            if (parameterIndex == null) {
-                var offset = this.nextValueOffset(this.buffer.position(), 1);
-                this.buffer.position(offset);
+            var parameterIndex = this.decodeKeyIndex(cachedConstructor);
+            if (parameterIndex == KeyPointerTable.NOT_A_PARAMETER) {
+                this.position = this.nextValueOffset(this.position, 1);
                 continue;
             }
 
@@ -697,7 +781,7 @@ class Decoder {
         }
 
         try {
-            return constructor.newInstance(parameters);
+            return newInstance(cls, cachedConstructor, parameters);
         } catch (InstantiationException
                  | IllegalAccessException
                  | InvocationTargetException e) {
@@ -725,6 +809,106 @@ class Decoder {
         }
     }
 
+    /*
+     * Decodes a map key and returns the index of the parameter it names, or
+     * NOT_A_PARAMETER. A key that is a pointer is looked up by the offset it
+     * points to, so its string is only decoded the first time. A string key
+     * is matched by its bytes, so it is not decoded at all.
+     */
+    private int decodeKeyIndex(CachedConstructor<?> cachedConstructor) throws IOException {
+        return this.decodeKeyIndex(
+            cachedConstructor.keyNames(),
+            cachedConstructor.parameterIndexes(),
+            cachedConstructor.keyPointers()
+        );
+    }
+
+    /*
+     * Decodes a map key and returns its index in keyIndexes, or
+     * NOT_A_PARAMETER. keyPointers may be null, in which case a key that is
+     * a pointer is decoded through the cache each time.
+     */
+    private int decodeKeyIndex(
+        KeyNameTable keyNames,
+        Map<String, Integer> keyIndexes,
+        KeyPointerTable keyPointers
+    ) throws IOException {
+        var ctrlByte = 0xFF & this.buffer.getByte(this.position);
+        var type = Type.fromControlByte(ctrlByte);
+        if (type == Type.UTF8_STRING) {
+            this.position++;
+            var size = this.decodeSize(ctrlByte);
+            var index = keyNames.indexOf(this.buffer, this.position, size);
+            this.position += size;
+            return index;
+        }
+        if (type != Type.POINTER) {
+            var key = (String) this.decode(String.class, null).value();
+            return keyIndex(keyIndexes, key);
+        }
+
+        this.position++;
+        var pointer = this.decodePointerTarget(ctrlByte);
+        var index = keyPointers != null ? keyPointers.get(pointer) : KeyPointerTable.UNKNOWN;
+        if (index == KeyPointerTable.UNKNOWN) {
+            var key = (String) this.decodePointer(pointer, String.class, null).value();
+            index = keyIndex(keyIndexes, key);
+            if (keyPointers != null) {
+                keyPointers.put(pointer, index);
+            }
+        }
+        return index;
+    }
+
+    private static int keyIndex(Map<String, Integer> keyIndexes, String key) {
+        var index = keyIndexes.get(key);
+        return index != null ? index : KeyPointerTable.NOT_A_PARAMETER;
+    }
+
+    /*
+     * Decodes the values at the paths below node into values, starting from
+     * the value at offset. Only the maps and arrays on the paths are walked,
+     * and the values that are not on them are skipped without decoding.
+     */
+    void decodePaths(long offset, PathQuery.Node node, Object[] values) throws IOException {
+        if (node.pathIndex() >= 0) {
+            values[node.pathIndex()] = this.decode(offset, Object.class);
+        }
+        var children = node.children();
+        if (children.length == 0) {
+            return;
+        }
+
+        var ctrlData = this.getCtrlData(offset);
+        if (ctrlData.type() == Type.POINTER) {
+            // The pointer follows the control byte, whatever its size bits.
+            this.position = offset + 1;
+            ctrlData = this.getCtrlData(this.decodePointerTarget(ctrlData.ctrlByte()));
+        }
+        var type = ctrlData.type();
+        if (type != Type.MAP && type != Type.ARRAY) {
+            return;
+        }
+
+        this.position = ctrlData.offset();
+        var found = 0;
+        for (int i = 0; i < ctrlData.size(); i++) {
+            var child = type == Type.MAP
+                ? this.decodeKeyIndex(node.keyNames(), node.keyIndexes(), null)
+                : node.arrayChild(i);
+            var valueOffset = this.position;
+            if (child >= 0) {
+                this.decodePaths(valueOffset, children[child], values);
+                // The rest of the map or array is not needed once every
+                // child has been found.
+                if (++found == children.length) {
+                    return;
+                }
+            }
+            this.position = this.nextValueOffset(valueOffset, 1);
+        }
+    }
+
     /**
      * Checks if an actual type can be assigned to an expected type,
      * accounting for primitive/boxed equivalents (e.g., Boolean to boolean).
@@ -786,7 +970,6 @@ class Decoder {
             return null;
         }
 
-        var ctor = metadata.constructor();
         var types = metadata.parameterTypes();
         var defaults = metadata.parameterDefaults();
         var injections = metadata.parameterInjections();
@@ -805,13 +988,54 @@ class Decoder {
         }
 
         try {
-            return ctor.newInstance(args);
+            return newInstance(parameterType, metadata, args);
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             throw new DeserializationException(
                 "Error creating object of type: " + parameterType.getName(), e);
         }
     }
 
+    /*
+     * Invokes the constructor through the class's generated decoder or its
+     * method handle, which convert the arguments to the parameter types,
+     * unboxing primitives, without the argument checks of reflection.
+     * Arguments that need more than that, e.g., a widening primitive
+     * conversion, or that do not match and so need reflection's
+     * IllegalArgumentException, go through the reflective path. An exception
+     * thrown by the constructor is wrapped as reflection would.
+     */
+    private static Object newInstance(Class<?> cls, CachedConstructor<?> cached, Object[] args)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        var generated = cached.generatedDecoder();
+        var factory = cached.factory();
+        if ((generated != null || factory != null)
+            && argumentsMatch(cached.parameterTypes(), args)) {
+            try {
+                return generated != null
+                    ? generated.newInstance(args)
+                    : (Object) factory.invokeExact(args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+        var constructor = cached.constructor();
+        if (constructor == null) {
+            constructor = REFLECTED_CONSTRUCTORS.get(cls);
+        }
+        return constructor.newInstance(args);
+    }
+
+    private static boolean argumentsMatch(Class<?>[] types, Object[] args) {
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] == null
+                ? types[i].isPrimitive()
+                : !isAssignableType(args[i].getClass(), types[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static Object primitiveDefault(Class<?> type) {
         if (type.equals(Boolean.TYPE)) {
             return false;
@@ -849,15 +1073,15 @@ class Decoder {
     }
 
     private Object getLookupIpValue(Class<?> parameterType) {
-        if (this.lookupIp == null) {
+        if (this.lookupContext == null) {
             throw new DeserializationException(
                 "Cannot inject lookup IP address because no lookup context is available.");
         }
         if (String.class.equals(parameterType)) {
-            return this.lookupIp.getHostAddress();
+            return this.lookupContext.ipAddress().getHostAddress();
         }
         if (InetAddress.class.isAssignableFrom(parameterType)) {
-            return this.lookupIp;
+            return this.lookupContext.ipAddress();
         }
         throw new DeserializationException(
             "Unsupported parameter type " + parameterType.getName()
@@ -866,15 +1090,15 @@ class Decoder {
     }
 
     private Object getLookupNetworkValue(Class<?> parameterType) {
-        if (this.lookupNetwork == null) {
+        if (this.lookupContext == null) {
             throw new DeserializationException(
                 "Cannot inject lookup network because no lookup context is available.");
         }
         if (String.class.equals(parameterType)) {
-            return this.lookupNetwork.toString();
+            return this.lookupContext.network().toString();
         }
         if (Network.class.isAssignableFrom(parameterType)) {
-            return this.lookupNetwork;
+            return this.lookupContext.network();
         }
         throw new DeserializationException(
             "Unsupported parameter type " + parameterType.getName()
@@ -933,6 +1157,37 @@ class Decoder {
                 + "provide a record canonical constructor, or a single public constructor.");
     }
 
+    /*
+     * The handles are looked up with the decoder's access, so they are
+     * available where reflection from the decoder would be. Reflection assumes
+     * that this module reads the class's module, whereas method handle lookups
+     * check it, so the read edge is added first. This is a no-op when this
+     * module is unnamed.
+     */
+    private static MethodHandle constructorHandle(Constructor<?> constructor) {
+        Decoder.class.getModule().addReads(constructor.getDeclaringClass().getModule());
+        try {
+            var count = constructor.getParameterCount();
+            return MethodHandles.lookup()
+                .unreflectConstructor(constructor)
+                .asType(MethodType.genericMethodType(count))
+                .asSpreader(Object[].class, count);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle creatorHandle(Method method) {
+        Decoder.class.getModule().addReads(method.getDeclaringClass().getModule());
+        try {
+            return MethodHandles.lookup()
+                .unreflect(method)
+                .asType(MethodType.genericMethodType(1));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
     private static MaxMindDbParameter getParameterAnnotation(Annotation[] annotations) {
         for (var annotation : annotations) {
             if (!annotation.annotationType().equals(MaxMindDbParameter.class)) {
@@ -1010,10 +1265,19 @@ class Decoder {
         }
 
         try {
-            return creator.method().invoke(null, value);
+            var handle = creator.handle();
+            if (handle == null) {
+                return creator.method().invoke(null, value);
+            }
+            try {
+                return (Object) handle.invokeExact(value);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
         } catch (IllegalAccessException | InvocationTargetException e) {
+            var name = creator.method() != null ? creator.method().getName() : "create";
             throw new DeserializationException(
-                "Error invoking creator method " + creator.method().getName()
+                "Error invoking creator method " + name
                     + " on class " + targetType.getName(), e);
         }
     }
@@ -1027,11 +1291,22 @@ class Decoder {
             return cached;
         }
 
-        CachedCreator creator = findCreatorMethod(cls);
+        var generated = GeneratedDecoders.get(cls);
+        CachedCreator creator = generated != null
+            ? generatedCreator(generated)
+            : findCreatorMethod(cls);
         this.creators.putIfAbsent(cls, creator != null ? creator : NO_CREATOR);
         return creator;
     }
 
+    private static CachedCreator generatedCreator(GeneratedDecoder<?> generated) {
+        var parameterType = generated.creatorParameterType();
+        if (parameterType == null) {
+            return null;
+        }
+        return new CachedCreator(null, GeneratedDecoders.creator(generated), parameterType);
+    }
+
     private static CachedCreator findCreatorMethod(Class<?> cls) {
         Method[] methods = cls.getDeclaredMethods();
         for (Method method : methods) {
@@ -1053,7 +1328,8 @@ class Decoder {
                     "Creator method " + method.getName() + " on class " + cls.getName()
                         + " must return " + cls.getName() + " or a subtype.");
             }
-            return new CachedCreator(method, method.getParameterTypes()[0]);
+            return new CachedCreator(
+                method, creatorHandle(method), method.getParameterTypes()[0]);
         }
         return null;
     }
@@ -1143,14 +1419,14 @@ class Decoder {
                     + "pointer larger than the database.");
         }
 
-        this.buffer.position(offset);
-        var ctrlByte = 0xFF & this.buffer.get();
+        this.position = offset;
+        var ctrlByte = 0xFF & this.nextByte();
         offset++;
 
         var type = Type.fromControlByte(ctrlByte);
 
         if (type.equals(Type.EXTENDED)) {
-            var nextByte = this.buffer.get();
+            var nextByte = this.nextByte();
 
             var typeNum = nextByte + 7;
 
@@ -1170,7 +1446,7 @@ class Decoder {
             var bytesToRead = size - 28;
             offset += bytesToRead;
             size = switch (size) {
-                case 29 -> 29 + (0xFF & buffer.get());
+                case 29 -> 29 + (0xFF & this.nextByte());
                 case 30 -> 285 + decodeInteger(2);
                 default -> 65821 + decodeInteger(3);
             };
@@ -1180,12 +1456,17 @@ class Decoder {
     }
 
     private byte[] getByteArray(int length) {
-        return Decoder.getByteArray(this.buffer, length);
-    }
-
-    private static byte[] getByteArray(Buffer buffer, int length) {
         var bytes = new byte[length];
-        buffer.get(bytes);
+        this.buffer.getBytes(this.position, bytes);
+        this.position += length;
         return bytes;
     }
+
+    private byte nextByte() {
+        return this.buffer.getByte(this.position++);
+    }
+
+    long position() {
+        return this.position;
+    }
 }
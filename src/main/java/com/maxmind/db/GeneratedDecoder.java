@@ -0,0 +1,91 @@
+package com.maxmind.db;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+/**
+ * A decoder for a class, generated at build time by the
+ * <code>maxmind-db-processor</code> annotation processor.
+ *
+ * <p>The processor generates a decoder for each class or record that uses
+ * {@link MaxMindDbConstructor}, {@link MaxMindDbParameter},
+ * {@link MaxMindDbCreator}, {@link MaxMindDbIpAddress}, or
+ * {@link MaxMindDbNetwork}. The decoder for <code>com.example.City</code> is
+ * <code>com.example.City_MaxMindDbDecoder</code>, and that for a nested class
+ * <code>com.example.Outer.Inner</code> is
+ * <code>com.example.Outer_Inner_MaxMindDbDecoder</code>. When a {@link Reader}
+ * first decodes a class, it uses the class's generated decoder if there is
+ * one, rather than finding the constructor, its parameters, and the creator
+ * method through reflection. The generated decoder calls the constructor or
+ * creator directly.
+ *
+ * <p>This interface is implemented by generated code and is not meant to be
+ * implemented by hand.
+ *
+ * @param <T> the class that is decoded
+ */
+public interface GeneratedDecoder<T> {
+    /**
+     * A parameter of the constructor used to decode a map.
+     *
+     * @param name          the key of the parameter's value in the map, or
+     *                      null if the parameter is injected from the lookup
+     * @param type          the parameter's type
+     * @param typeArguments the type arguments of a {@link List} or {@link java.util.Map}
+     *                      parameter, or an empty array.
+     * @param defaultValue  the default value to parse when the key is missing
+     *                      from the map, as in
+     *                      {@link MaxMindDbParameter#defaultValue()}, or null
+     *                      if the parameter has no default.
+     * @param injection     {@link MaxMindDbIpAddress} or
+     *                      {@link MaxMindDbNetwork} if the parameter is
+     *                      injected from the lookup, or null.
+     */
+    record Parameter(
+        String name,
+        Class<?> type,
+        Class<?>[] typeArguments,
+        String defaultValue,
+        Class<? extends Annotation> injection
+    ) {
+    }
+
+    /**
+     * @return the class that is decoded
+     */
+    Class<T> type();
+
+    /**
+     * @return the parameters of the constructor used to decode a map, in
+     *         order, or null if the class has no such constructor.
+     */
+    List<Parameter> parameters();
+
+    /**
+     * Calls the constructor used to decode a map.
+     *
+     * @param arguments the arguments, one for each of {@link #parameters()}
+     * @return the new instance
+     */
+    T newInstance(Object[] arguments);
+
+    /**
+     * @return the parameter type of the {@link MaxMindDbCreator} method, or
+     *         null if the class has none.
+     */
+    default Class<?> creatorParameterType() {
+        return null;
+    }
+
+    /**
+     * Calls the {@link MaxMindDbCreator} method.
+     *
+     * @param value the decoded value, an instance of
+     *              {@link #creatorParameterType()}
+     * @return the created instance
+     */
+    default T create(Object value) {
+        throw new UnsupportedOperationException(
+            type().getName() + " does not have a creator method.");
+    }
+}
@@ -0,0 +1,122 @@
+package com.maxmind.db;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.util.Optional;
+
+/*
+ * Finds the GeneratedDecoder for a class, by its name, and adapts it to the
+ * decoder's cached constructor and creator.
+ */
+final class GeneratedDecoders {
+    static final String SUFFIX = "_MaxMindDbDecoder";
+
+    private static final MethodHandle CREATE;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            CREATE = lookup.findVirtual(GeneratedDecoder.class, "create",
+                MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Each class is only looked for once, however many readers decode it.
+    private static final ClassValue<Optional<GeneratedDecoder<?>>> DECODERS =
+        new ClassValue<>() {
+            @Override
+            protected Optional<GeneratedDecoder<?>> computeValue(Class<?> cls) {
+                return Optional.ofNullable(load(cls));
+            }
+        };
+
+    private GeneratedDecoders() {
+    }
+
+    /*
+     * Returns the generated decoder for the class, or null if there is none
+     * or it cannot be used, in which case the class is decoded through
+     * reflection.
+     */
+    static <T> GeneratedDecoder<T> get(Class<T> cls) {
+        @SuppressWarnings("unchecked")
+        var decoder = (GeneratedDecoder<T>) DECODERS.get(cls).orElse(null);
+        return decoder;
+    }
+
+    private static GeneratedDecoder<?> load(Class<?> cls) {
+        if (cls.isPrimitive() || cls.isArray() || cls.getName().startsWith("java.")) {
+            return null;
+        }
+        var name = cls.getName();
+        var packageName = cls.getPackageName();
+        var simpleName = packageName.isEmpty()
+            ? name
+            : name.substring(packageName.length() + 1);
+        var decoderName = (packageName.isEmpty() ? "" : packageName + ".")
+            + simpleName.replace('$', '_') + SUFFIX;
+        try {
+            var decoderClass = Class.forName(decoderName, true, cls.getClassLoader());
+            if (!GeneratedDecoder.class.isAssignableFrom(decoderClass)) {
+                return null;
+            }
+            var decoder = (GeneratedDecoder<?>) decoderClass.getConstructor().newInstance();
+            return decoder.type() == cls ? decoder : null;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // Not generated, or not accessible, e.g., in a package that is
+            // not exported to this module.
+            return null;
+        }
+    }
+
+    /*
+     * Returns the decoder's create as an (Object)Object handle.
+     */
+    static MethodHandle creator(GeneratedDecoder<?> decoder) {
+        return CREATE.bindTo(decoder);
+    }
+
+    static ParameterInjection injection(GeneratedDecoder.Parameter parameter) {
+        if (parameter.injection() == MaxMindDbIpAddress.class) {
+            return ParameterInjection.IP_ADDRESS;
+        }
+        if (parameter.injection() == MaxMindDbNetwork.class) {
+            return ParameterInjection.NETWORK;
+        }
+        return ParameterInjection.NONE;
+    }
+
+    /*
+     * Returns the generic type of a parameter, as reflection would.
+     */
+    static java.lang.reflect.Type genericType(GeneratedDecoder.Parameter parameter) {
+        if (parameter.typeArguments().length == 0) {
+            return parameter.type();
+        }
+        return new SimpleParameterizedType(parameter.type(), parameter.typeArguments());
+    }
+
+    private record SimpleParameterizedType(
+        Class<?> rawType,
+        java.lang.reflect.Type[] typeArguments
+    ) implements ParameterizedType {
+        @Override
+        public java.lang.reflect.Type[] getActualTypeArguments() {
+            return this.typeArguments.clone();
+        }
+
+        @Override
+        public java.lang.reflect.Type getRawType() {
+            return this.rawType;
+        }
+
+        @Override
+        public java.lang.reflect.Type getOwnerType() {
+            return null;
+        }
+    }
+}
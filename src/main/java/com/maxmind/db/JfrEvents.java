@@ -0,0 +1,74 @@
+package com.maxmind.db;
+
+/*
+ * Creates the reader's JFR events, or returns null if the jdk.jfr module is
+ * not present, e.g., in a runtime image built without it. The module only
+ * requires jdk.jfr statically, so the event classes, which extend
+ * jdk.jfr.Event, must not be loaded unless it is present. Callers therefore
+ * check the returned event for null before using it, and never refer to the
+ * event classes otherwise.
+ *
+ * Whether the module is present is determined once, when this class is
+ * initialized. As PRESENT is a constant, the JIT removes the checks.
+ */
+final class JfrEvents {
+    private static final boolean PRESENT =
+        ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private JfrEvents() {
+    }
+
+    static LookupEvent beginLookup() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new LookupEvent();
+        event.begin();
+        return event;
+    }
+
+    static DecodeEvent beginDecode() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new DecodeEvent();
+        event.begin();
+        return event;
+    }
+
+    static CacheLoadEvent beginCacheLoad() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new CacheLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    static DatabaseOpenEvent beginDatabaseOpen() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new DatabaseOpenEvent();
+        event.begin();
+        return event;
+    }
+
+    static DatabaseCloseEvent beginDatabaseClose() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new DatabaseCloseEvent();
+        event.begin();
+        return event;
+    }
+
+    static DatabaseReloadEvent beginDatabaseReload() {
+        if (!PRESENT) {
+            return null;
+        }
+        var event = new DatabaseReloadEvent();
+        event.begin();
+        return event;
+    }
+}
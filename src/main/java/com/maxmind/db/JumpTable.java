@@ -0,0 +1,79 @@
+package com.maxmind.db;
+
+import java.util.Arrays;
+
+/*
+ * Maps the first bits of an address directly to the record reached after
+ * following them in the search tree, so that lookups do not need to walk the
+ * top levels of the tree one bit at a time. These levels are the same for
+ * every lookup.
+ *
+ * Each entry is a record and the number of bits followed to reach it, packed
+ * as in SearchTree.traverse. Where a record that is not a node is reached
+ * before the table's depth, e.g., for a network with a short prefix, all of
+ * the entries for addresses in that network contain that record and its
+ * prefix length.
+ */
+final class JumpTable {
+    private final int bits;
+    private final long[] entries;
+
+    private JumpTable(int bits, long[] entries) {
+        this.bits = bits;
+        this.entries = entries;
+    }
+
+    /*
+     * Builds a table of the records reached after following bits bits from
+     * startNode.
+     */
+    static JumpTable build(SearchTree searchTree, Buffer buffer, long startNode, int bits) {
+        var entries = new long[1 << bits];
+        fill(searchTree, buffer, entries, bits, startNode, 0, 0);
+        return new JumpTable(bits, entries);
+    }
+
+    private static void fill(
+        SearchTree searchTree,
+        Buffer buffer,
+        long[] entries,
+        int bits,
+        long record,
+        int depth,
+        int index
+    ) {
+        if (depth == bits || record >= searchTree.nodeCount) {
+            int shift = bits - depth;
+            Arrays.fill(
+                entries,
+                index << shift,
+                (index + 1) << shift,
+                SearchTree.pack(record, depth)
+            );
+            return;
+        }
+        for (int i = 0; i < 2; i++) {
+            fill(
+                searchTree,
+                buffer,
+                entries,
+                bits,
+                searchTree.readNode(buffer, record, i),
+                depth + 1,
+                (index << 1) | i
+            );
+        }
+    }
+
+    int bits() {
+        return this.bits;
+    }
+
+    /*
+     * Returns the packed record and prefix length for the address whose most
+     * significant bits are in the top of high.
+     */
+    long get(long high) {
+        return this.entries[(int) (high >>> (64 - this.bits))];
+    }
+}
@@ -0,0 +1,79 @@
+package com.maxmind.db;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Matches the UTF-8 bytes of a map key in the buffer against the names of
+ * a constructor's parameters, or the keys of a PathQuery node, so that a key
+ * stored inline is matched, or skipped, without decoding it into a String.
+ *
+ * The names are bucketed by their length and first byte, which tells
+ * apart the names of nearly any class, and the key is compared byte by
+ * byte only against the names in its bucket.
+ *
+ * This class is immutable and thread-safe.
+ */
+final class KeyNameTable {
+    private static final int[] EMPTY = new int[0];
+
+    // The UTF-8 bytes of the names and their parameter indexes, in the
+    // same order.
+    private final byte[][] names;
+    private final int[] indexes;
+    // The positions in names of the names in each bucket.
+    private final int[][] buckets;
+
+    KeyNameTable(Map<String, Integer> parameterIndexes) {
+        this.names = new byte[parameterIndexes.size()][];
+        this.indexes = new int[parameterIndexes.size()];
+        this.buckets = new int[Integer.highestOneBit(Math.max(1, parameterIndexes.size())) << 2][];
+        Arrays.fill(this.buckets, EMPTY);
+
+        var i = 0;
+        for (var entry : parameterIndexes.entrySet()) {
+            var name = entry.getKey().getBytes(UTF_8);
+            this.names[i] = name;
+            this.indexes[i] = entry.getValue();
+            var bucket = this.bucket(name.length, name.length > 0 ? name[0] : 0);
+            var positions = Arrays.copyOf(this.buckets[bucket], this.buckets[bucket].length + 1);
+            positions[positions.length - 1] = i;
+            this.buckets[bucket] = positions;
+            i++;
+        }
+    }
+
+    /*
+     * Returns the index of the parameter named by the size bytes at offset,
+     * or KeyPointerTable.NOT_A_PARAMETER.
+     */
+    int indexOf(Buffer buffer, long offset, int size) {
+        var first = size > 0 ? buffer.getByte(offset) : 0;
+        for (var position : this.buckets[this.bucket(size, first)]) {
+            var name = this.names[position];
+            if (matches(buffer, offset, name, size)) {
+                return this.indexes[position];
+            }
+        }
+        return KeyPointerTable.NOT_A_PARAMETER;
+    }
+
+    private int bucket(int size, int first) {
+        return (size * 31 + (first & 0xFF)) & (this.buckets.length - 1);
+    }
+
+    private static boolean matches(Buffer buffer, long offset, byte[] name, int size) {
+        if (name.length != size) {
+            return false;
+        }
+        // The first byte chose the bucket, but may still differ.
+        for (int i = 0; i < size; i++) {
+            if (buffer.getByte(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
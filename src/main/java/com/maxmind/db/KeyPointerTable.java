@@ -0,0 +1,76 @@
+package com.maxmind.db;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Maps the offsets of the strings that map keys point to, to the index of
+ * the constructor parameter with that name, or to NOT_A_PARAMETER.
+ *
+ * Map keys are nearly always pointers to strings stored once in the data
+ * section, so a key that has been seen before can be matched by its pointer
+ * without decoding the string. The table is specific to one database, as
+ * the offsets are.
+ *
+ * The table is open addressed with a fixed capacity, each slot packing the
+ * offset and the index into a long, so that lookups neither allocate nor
+ * lock. When the probes for an offset are all taken, it is not added, and
+ * its key is decoded each time as before.
+ *
+ * This class is thread-safe.
+ */
+final class KeyPointerTable {
+    // The result of get for an offset that is not in the table.
+    static final int UNKNOWN = -2;
+    // The index of a key that is not a parameter's name.
+    static final int NOT_A_PARAMETER = -1;
+
+    private static final int CAPACITY_BITS = 8;
+    private static final int CAPACITY = 1 << CAPACITY_BITS;
+    private static final int MAX_PROBES = 8;
+    private static final int INDEX_BITS = 16;
+    private static final long MAX_OFFSET = (1L << (63 - INDEX_BITS)) - 1;
+
+    // 0 is an empty slot. Otherwise, the offset is in the high bits and
+    // index + 2 is in the low bits, so that no entry is 0.
+    private final AtomicLongArray slots = new AtomicLongArray(CAPACITY);
+
+    int get(long offset) {
+        int slot = slot(offset);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            long entry = this.slots.get((slot + i) & (CAPACITY - 1));
+            if (entry == 0) {
+                return UNKNOWN;
+            }
+            if (entry >>> INDEX_BITS == offset) {
+                return (int) (entry & ((1 << INDEX_BITS) - 1)) - 2;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    void put(long offset, int index) {
+        if (offset < 0 || offset > MAX_OFFSET || index + 2 >= 1 << INDEX_BITS) {
+            return;
+        }
+        long entry = offset << INDEX_BITS | (index + 2);
+        int slot = slot(offset);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int probe = (slot + i) & (CAPACITY - 1);
+            long existing = this.slots.get(probe);
+            if (existing == 0) {
+                if (this.slots.compareAndSet(probe, 0, entry)) {
+                    return;
+                }
+                // Another thread took the slot first.
+                existing = this.slots.get(probe);
+            }
+            if (existing >>> INDEX_BITS == offset) {
+                return;
+            }
+        }
+    }
+
+    private static int slot(long offset) {
+        return (int) ((offset * 0x9E3779B97F4A7C15L) >>> (64 - CAPACITY_BITS));
+    }
+}
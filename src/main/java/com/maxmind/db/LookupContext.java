@@ -0,0 +1,62 @@
+package com.maxmind.db;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/*
+ * The lookup IP address and resulting network that are made available to
+ * constructors using @MaxMindDbIpAddress or @MaxMindDbNetwork.
+ *
+ * When the lookup was made with a primitive address, the InetAddress and
+ * Network are only created if a decoded type asks for them.
+ */
+final class LookupContext {
+    private final long high;
+    private final long low;
+    private final int bitLength;
+    private final int prefixLength;
+
+    private InetAddress ipAddress;
+    private Network network;
+
+    LookupContext(InetAddress ipAddress, Network network) {
+        this.high = 0;
+        this.low = 0;
+        this.bitLength = 0;
+        this.prefixLength = network.prefixLength();
+        this.ipAddress = ipAddress;
+        this.network = network;
+    }
+
+    LookupContext(long high, long low, int bitLength, int prefixLength) {
+        this.high = high;
+        this.low = low;
+        this.bitLength = bitLength;
+        this.prefixLength = prefixLength;
+    }
+
+    InetAddress ipAddress() {
+        if (this.ipAddress == null) {
+            var bytes = new byte[this.bitLength / 8];
+            for (int i = 0; i < bytes.length; i++) {
+                var word = i < 8 ? this.high : this.low;
+                bytes[i] = (byte) (word >>> (56 - 8 * (i % 8)));
+            }
+            try {
+                this.ipAddress = InetAddress.getByAddress(bytes);
+            } catch (UnknownHostException e) {
+                // This should never happen as the byte length is always 4 or 16.
+                throw new IllegalStateException(
+                    "Illegal IP address byte length of " + bytes.length, e);
+            }
+        }
+        return this.ipAddress;
+    }
+
+    Network network() {
+        if (this.network == null) {
+            this.network = new Network(this.ipAddress(), this.prefixLength);
+        }
+        return this.network;
+    }
+}
@@ -0,0 +1,38 @@
+package com.maxmind.db;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * A JFR event for a lookup of a single address, from the start of the search
+ * tree walk until the data, if any, is decoded.
+ */
+@Name("com.maxmind.db.Lookup")
+@Label("MaxMind DB Lookup")
+@Category("MaxMind DB")
+@Description("A lookup of an IP address in a MaxMind DB")
+@Enabled(false)
+@StackTrace(false)
+final class LookupEvent extends jdk.jfr.Event {
+    @Label("Database Type")
+    String databaseType;
+
+    @Label("IP Version")
+    @Description("4 or 6, depending on the address looked up")
+    int ipVersion;
+
+    @Label("Prefix Length")
+    int prefixLength;
+
+    @Label("Found")
+    @Description("Whether there was data for the address")
+    boolean found;
+
+    @Label("Record Type")
+    @Description("The class the data was decoded to")
+    String recordType;
+}
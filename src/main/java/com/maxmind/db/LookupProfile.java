@@ -0,0 +1,291 @@
+package com.maxmind.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A record of the networks recently looked up with a {@link Reader}, which
+ * can be saved to a file and replayed to warm up a reader before it serves
+ * traffic, e.g., when a service starts.
+ *
+ * <p>A profile is set on a reader with
+ * {@link Reader.Builder#withLookupProfile(LookupProfile)}. It keeps the
+ * network and data section offset of the most recent lookups in a ring of a
+ * fixed size, so recording a lookup does not allocate. Recording may be
+ * limited to a sample of the lookups to reduce its cost further.
+ *
+ * <p>{@link #replay(Reader, Class)} looks up each recorded network. This
+ * reads the pages of the search tree and data section that the lookups used
+ * and, if the reader has caches, decodes the records and the values they
+ * point to into them. The networks are replayed in order of their offset in
+ * the data section, so that the pages are read in file order. As a profile
+ * holds networks rather than anything specific to one database, it may be
+ * replayed on a reader of a newer release of the database, and one profile
+ * may be set on several readers.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * // On startup:
+ * LookupProfile profile = new LookupProfile(10_000);
+ * if (Files.exists(profileFile)) {
+ *     profile.load(profileFile);
+ * }
+ * Reader reader = new Reader.Builder(database)
+ *     .withCache(new CHMCache())
+ *     .withLookupProfile(profile)
+ *     .build();
+ * profile.replay(reader, City.class);
+ *
+ * // Periodically and on shutdown:
+ * profile.save(profileFile);
+ * </pre>
+ */
+public final class LookupProfile {
+    private static final int MAGIC = 0x4D4D4450; // "MMDP"
+    private static final int VERSION = 1;
+
+    // Each lookup takes three slots: the two halves of the network address,
+    // and the bit length, prefix length, and data offset packed together.
+    private static final int SLOTS = 3;
+    private static final long NO_DATA = (1L << 48) - 1;
+
+    private final int capacity;
+    private final int sampleInterval;
+    private final AtomicLongArray ring;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * A recorded network.
+     *
+     * @param high         the most significant 64 bits of the network
+     *                     address. An IPv4 address is in the most
+     *                     significant 32 bits.
+     * @param low          the least significant 64 bits of the network
+     *                     address.
+     * @param bitLength    32 for an IPv4 lookup, 128 for an IPv6 lookup.
+     * @param prefixLength the prefix length of the network.
+     * @param dataOffset   the offset of the network's record in the data
+     *                     section, or -1 if it had no data.
+     */
+    record Entry(long high, long low, int bitLength, int prefixLength, long dataOffset) {
+    }
+
+    /**
+     * Creates a profile that records every lookup.
+     *
+     * @param capacity the number of recent lookups to keep
+     */
+    public LookupProfile(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * Creates a profile that records a sample of the lookups.
+     *
+     * @param capacity       the number of recent lookups to keep
+     * @param sampleInterval the average number of lookups per recorded
+     *                       lookup. Each lookup is recorded with a
+     *                       probability of <code>1 / sampleInterval</code>.
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public LookupProfile(int capacity, int sampleInterval) {
+        if (capacity < 1 || capacity > Integer.MAX_VALUE / SLOTS) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException(
+                "The sample interval must be positive: " + sampleInterval);
+        }
+        this.capacity = capacity;
+        this.sampleInterval = sampleInterval;
+        this.ring = new AtomicLongArray(capacity * SLOTS);
+    }
+
+    /**
+     * Adds the networks in a profile saved with {@link #save(Path)} to this
+     * profile, as if they had been looked up. If the file holds more networks
+     * than this profile keeps, the most recent are kept.
+     *
+     * @param file the file to read
+     * @throws IOException if the file cannot be read or is not a profile. The
+     *                     networks read before the error was found are kept.
+     */
+    public void load(Path file) throws IOException {
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a lookup profile: " + file);
+            }
+            var version = input.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException(
+                    "Unsupported lookup profile version " + version + ": " + file);
+            }
+            var size = input.readInt();
+            if (size < 0) {
+                throw new IOException("Corrupt lookup profile: " + file);
+            }
+            for (int i = 0; i < size; i++) {
+                var bitLength = input.readUnsignedByte();
+                var prefixLength = input.readUnsignedByte();
+                var high = input.readLong();
+                var low = input.readLong();
+                var dataOffset = input.readLong();
+                if ((bitLength != 32 && bitLength != 128) || prefixLength > bitLength) {
+                    throw new IOException("Corrupt lookup profile: " + file);
+                }
+                this.add(high, low, bitLength, prefixLength, dataOffset);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated lookup profile: " + file, e);
+        }
+    }
+
+    /**
+     * Saves the distinct networks in the profile to a file. The file is
+     * written to a temporary file that is then renamed over
+     * <code>file</code>, so a profile being loaded is never partially
+     * written.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        var entries = this.entries();
+        var directory = file.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (var output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                output.writeInt(entries.size());
+                for (var entry : entries) {
+                    output.writeByte(entry.bitLength());
+                    output.writeByte(entry.prefixLength());
+                    output.writeLong(entry.high());
+                    output.writeLong(entry.low());
+                    output.writeLong(entry.dataOffset());
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Looks up each distinct network in the profile, in order of the offset
+     * of its record in the data section when it was recorded.
+     *
+     * @param <T>    the type to populate.
+     * @param reader the reader to warm up
+     * @param cls    the class to decode the records to, which should be the
+     *               class later lookups use, so that the cached values are
+     *               those they look up.
+     * @return the number of networks looked up
+     * @throws IOException if a lookup fails
+     */
+    public <T> int replay(Reader reader, Class<T> cls) throws IOException {
+        var entries = this.entries();
+        entries.sort(Comparator.comparingLong(Entry::dataOffset));
+        var result = new LookupResult<T>();
+        var isIpV6 = reader.getMetadata().ipVersion() == 6;
+        int count = 0;
+        for (var entry : entries) {
+            if (entry.bitLength() == 32) {
+                reader.lookup((int) (entry.high() >>> 32), cls, result);
+            } else if (isIpV6) {
+                reader.lookup(entry.high(), entry.low(), cls, result);
+            } else {
+                // The profile was recorded with an IPv6 database.
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of lookups recorded, including those that have
+     *         since been replaced by more recent lookups.
+     */
+    public long recordedCount() {
+        return this.count.get();
+    }
+
+    /*
+     * Records a lookup. The address is masked to the network, so lookups of
+     * different addresses in the same network are recorded alike.
+     */
+    void record(long high, long low, int bitLength, int prefixLength, long dataOffset) {
+        if (this.sampleInterval > 1
+            && ThreadLocalRandom.current().nextInt(this.sampleInterval) != 0) {
+            return;
+        }
+        if (prefixLength <= 64) {
+            high &= prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+            low = 0;
+        } else {
+            low &= -1L << (128 - prefixLength);
+        }
+        this.add(high, low, bitLength, prefixLength, dataOffset);
+    }
+
+    private void add(long high, long low, int bitLength, int prefixLength, long dataOffset) {
+        long meta = (dataOffset < 0 ? NO_DATA : dataOffset) << 16
+            | (long) (bitLength == 32 ? 0 : 1) << 8
+            | prefixLength;
+        int slot = (int) (this.count.getAndIncrement() % this.capacity) * SLOTS;
+        // Lookups recorded at once by threads that have wrapped around the
+        // ring may mix their slots. A mixed entry is only a network that
+        // was not looked up, which does no harm when replayed.
+        this.ring.setRelease(slot, high);
+        this.ring.setRelease(slot + 1, low);
+        this.ring.setRelease(slot + 2, meta);
+    }
+
+    /*
+     * Returns the distinct recorded networks, from the oldest to the most
+     * recent.
+     */
+    List<Entry> entries() {
+        long recorded = this.count.get();
+        long start = Math.max(0, recorded - this.capacity);
+        var entries = new LinkedHashSet<Entry>();
+        for (long i = start; i < recorded; i++) {
+            int slot = (int) (i % this.capacity) * SLOTS;
+            long meta = this.ring.getAcquire(slot + 2);
+            if (meta == 0 && this.ring.getAcquire(slot) == 0
+                && this.ring.getAcquire(slot + 1) == 0) {
+                // Reserved by a lookup that has not written it yet.
+                continue;
+            }
+            long dataOffset = meta >>> 16;
+            entries.add(new Entry(
+                this.ring.getAcquire(slot),
+                this.ring.getAcquire(slot + 1),
+                (meta >>> 8 & 1) == 0 ? 32 : 128,
+                (int) (meta & 0xFF),
+                dataOffset == NO_DATA ? -1 : dataOffset
+            ));
+        }
+        return new ArrayList<>(entries);
+    }
+}
@@ -0,0 +1,53 @@
+package com.maxmind.db;
+
+/**
+ * A mutable holder for the result of one of the {@code Reader.lookup} methods.
+ * A single instance may be reused for many lookups to avoid allocating a
+ * {@link DatabaseRecord}, {@link Network}, and {@link java.net.InetAddress}
+ * for each one.
+ *
+ * <p>Instances are not thread-safe. Each thread should use its own holder.
+ *
+ * @param <T> the type to deserialize the returned value to
+ */
+public final class LookupResult<T> {
+    private T data;
+    private int prefixLength;
+
+    /**
+     * Creates an empty result holder.
+     */
+    public LookupResult() {
+    }
+
+    void set(T data, int prefixLength) {
+        this.data = data;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * @return the data for the record from the most recent lookup. This will
+     *         be {@code null} if there was no data for the address in the
+     *         database.
+     */
+    public T data() {
+        return this.data;
+    }
+
+    /**
+     * @return the prefix length of the network associated with the record
+     *         from the most recent lookup. When an IPv4 address is looked up
+     *         in an IPv6 database, this is relative to the 32-bit IPv4
+     *         address, as with {@link Network#prefixLength()}.
+     */
+    public int prefixLength() {
+        return this.prefixLength;
+    }
+
+    /**
+     * @return whether the most recent lookup found data for the address.
+     */
+    public boolean hasData() {
+        return this.data != null;
+    }
+}
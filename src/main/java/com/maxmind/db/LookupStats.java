@@ -0,0 +1,107 @@
+package com.maxmind.db;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link LookupStatsRecorder} that counts the lookups it receives, with a
+ * histogram of the depth reached in the search tree. The counts are kept in
+ * {@link LongAdder}s, so recording from many threads at once does not
+ * contend on a single counter. Reading them is comparatively expensive and
+ * is meant for periodic reporting rather than the lookup path.
+ */
+public final class LookupStats implements LookupStatsRecorder {
+    private static final int MAX_DEPTH = 128;
+
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder notFoundCount = new LongAdder();
+    private final LongAdder decodeCount = new LongAdder();
+    private final LongAdder totalDecodeTimeNanos = new LongAdder();
+    private final LongAdder[] depthCounts = new LongAdder[MAX_DEPTH + 1];
+
+    /**
+     * Creates a new instance with all counts at zero.
+     */
+    public LookupStats() {
+        for (int i = 0; i < this.depthCounts.length; i++) {
+            this.depthCounts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void recordLookup(int depth, boolean found) {
+        this.lookupCount.increment();
+        this.depthCounts[depth].increment();
+        if (!found) {
+            this.notFoundCount.increment();
+        }
+    }
+
+    @Override
+    public void recordDecode(long decodeTimeNanos) {
+        this.decodeCount.increment();
+        this.totalDecodeTimeNanos.add(decodeTimeNanos);
+    }
+
+    /**
+     * @return the number of lookups.
+     */
+    public long lookupCount() {
+        return this.lookupCount.sum();
+    }
+
+    /**
+     * @return the number of lookups of addresses without data.
+     */
+    public long notFoundCount() {
+        return this.notFoundCount.sum();
+    }
+
+    /**
+     * @param depth the depth in the search tree, from 0 to 128
+     * @return the number of lookups that ended at <code>depth</code>.
+     * @throws IllegalArgumentException if <code>depth</code> is out of range
+     */
+    public long depthCount(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException(
+                "The depth must be between 0 and " + MAX_DEPTH + ": " + depth);
+        }
+        return this.depthCounts[depth].sum();
+    }
+
+    /**
+     * @return the number of lookups that ended at each depth in the search
+     *         tree, indexed by depth. The array has 129 elements.
+     */
+    public long[] depthHistogram() {
+        var histogram = new long[this.depthCounts.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = this.depthCounts[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the number of lookups whose data was resolved.
+     */
+    public long decodeCount() {
+        return this.decodeCount.sum();
+    }
+
+    /**
+     * @return the total time spent resolving the data of lookups, in
+     *         nanoseconds.
+     */
+    public long totalDecodeTimeNanos() {
+        return this.totalDecodeTimeNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LookupStats{lookupCount=" + this.lookupCount()
+            + ", notFoundCount=" + this.notFoundCount()
+            + ", decodeCount=" + this.decodeCount()
+            + ", totalDecodeTimeNanos=" + this.totalDecodeTimeNanos()
+            + "}";
+    }
+}
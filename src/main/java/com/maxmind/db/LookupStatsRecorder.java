@@ -0,0 +1,32 @@
+package com.maxmind.db;
+
+/**
+ * Receives the statistics of lookups made with a {@link Reader}. An
+ * implementation may be set with
+ * {@link Reader.Builder#withLookupStats(LookupStatsRecorder)} to report
+ * lookups, e.g., to a metrics library. {@link LookupStats} is an
+ * implementation that keeps counts.
+ *
+ * <p>The methods are called on the lookup path by any thread using the
+ * reader, so they must be thread-safe and should be cheap.
+ */
+public interface LookupStatsRecorder {
+    /**
+     * Records a lookup of an address.
+     *
+     * @param depth the number of bits of the address followed in the search
+     *              tree, i.e., the prefix length of the network found, from
+     *              0 to 128. For IPv4 lookups in an IPv6 database, this is
+     *              relative to the IPv4 address.
+     * @param found whether there was data for the address
+     */
+    void recordLookup(int depth, boolean found);
+
+    /**
+     * Records the resolution of the data for a lookup that found data. This
+     * includes the time spent in the record cache, if one is set.
+     *
+     * @param decodeTimeNanos the time taken, in nanoseconds
+     */
+    void recordDecode(long decodeTimeNanos);
+}
@@ -0,0 +1,144 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.function.Predicate;
+
+/**
+ * A database file memory-mapped for {@link BufferHolder}.
+ *
+ * <p>As a {@link java.nio.ByteBuffer} is indexed by an int, files larger
+ * than <code>chunkSize</code> are mapped as a {@link MultiBuffer}. The
+ * multi-release JAR replaces this class on Java 22 and later with one that
+ * maps the whole file as a single
+ * <code>java.lang.foreign.MemorySegment</code>.
+ */
+final class MappedFile {
+    // sun.misc.Unsafe.invokeCleaner, bound to the Unsafe instance, or null
+    // if it is not available.
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // The mappings are left to the garbage collector.
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Buffer buffer;
+    // The mappings themselves rather than the read-only views of them in
+    // buffer, as only the former can be unmapped.
+    private final ByteBuffer[] mappings;
+
+    private MappedFile(Buffer buffer, ByteBuffer[] mappings) {
+        this.buffer = buffer;
+        this.mappings = mappings;
+    }
+
+    /**
+     * Maps the whole of the given {@link FileChannel}.
+     *
+     * @param channel   the file channel to map
+     * @param chunkSize the size above which the file is mapped in chunks
+     * @param unmappable whether {@link #unmap()} will be called. The
+     *                  mappings are kept either way on this version of Java.
+     * @return the mapped file
+     * @throws IOException if an I/O error occurs
+     */
+    static MappedFile map(FileChannel channel, int chunkSize, boolean unmappable)
+        throws IOException {
+        var size = channel.size();
+        if (size <= chunkSize) {
+            var mapping = channel.map(MapMode.READ_ONLY, 0, size);
+            return new MappedFile(new SingleBuffer(mapping), new ByteBuffer[] {mapping});
+        }
+        var mappings = MultiBuffer.mapChunks(channel);
+        return new MappedFile(
+            new MultiBuffer(mappings, MultiBuffer.MAPPED_CHUNK_SIZE),
+            mappings
+        );
+    }
+
+    Buffer buffer() {
+        return this.buffer;
+    }
+
+    /*
+     * Reads the pages of the given range of the file into memory. See
+     * MappedByteBuffer.load().
+     */
+    void load(long offset, long length) {
+        this.forEachSlice(offset, length, slice -> {
+            slice.load();
+            return true;
+        });
+    }
+
+    /*
+     * Returns whether the pages of the given range of the file are likely
+     * to be in memory. See MappedByteBuffer.isLoaded().
+     */
+    boolean isLoaded(long offset, long length) {
+        return this.forEachSlice(offset, length, MappedByteBuffer::isLoaded);
+    }
+
+    /*
+     * Calls action with the part of each mapping in the given range, until
+     * it returns false, and returns whether it always returned true.
+     */
+    private boolean forEachSlice(
+        long offset,
+        long length,
+        Predicate<MappedByteBuffer> action
+    ) {
+        long start = 0;
+        for (var mapping : this.mappings) {
+            long end = start + mapping.capacity();
+            long from = Math.max(offset, start);
+            long to = Math.min(offset + length, end);
+            if (from < to) {
+                var slice = ((MappedByteBuffer) mapping).slice(
+                    (int) (from - start), (int) (to - from));
+                if (!action.test(slice)) {
+                    return false;
+                }
+            }
+            start = end;
+        }
+        return true;
+    }
+
+    /*
+     * Unmaps the file. Java 17 has no supported way to do this, so it uses
+     * sun.misc.Unsafe.invokeCleaner, as other libraries that map files do.
+     * Where that is not available, the mappings are left to the garbage
+     * collector. The buffer must not be read afterwards, as doing so may
+     * crash the JVM.
+     */
+    void unmap() {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            for (var mapping : this.mappings) {
+                INVOKE_CLEANER.invoke(UNSAFE, mapping);
+            }
+        } catch (ReflectiveOperationException e) {
+            // As above, the mappings are left to the garbage collector.
+        }
+    }
+}
@@ -2,18 +2,15 @@ package com.maxmind.db;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
 
 /**
  * A {@link Buffer} implementation backed by multiple {@link ByteBuffer}s,
  * allowing support for capacities larger than {@link Integer#MAX_VALUE}.
  *
  * <p>This implementation virtually concatenates several
- * {@link ByteBuffer}s (each up to {@link Integer#MAX_VALUE}) and maintains
- * a single logical position and limit across them.
+ * {@link ByteBuffer}s (each up to {@link Integer#MAX_VALUE}) and maps each
+ * absolute index to a chunk and an offset within it.
  *
  * <p>Use this when working with databases/files that may exceed 2GB.
  *
@@ -25,19 +22,24 @@ final class MultiBuffer implements Buffer {
     /** Default maximum size per underlying chunk. */
     static final int DEFAULT_CHUNK_SIZE = Integer.MAX_VALUE - 8;
 
+    /**
+     * Size of the chunks a file is mapped in. A power of two lets an index
+     * be split into its chunk and offset with a shift and a mask rather than
+     * a division.
+     */
+    static final int MAPPED_CHUNK_SIZE = 1 << 30;
+
     final ByteBuffer[] buffers;
     private final int chunkSize;
+    // log2(chunkSize), or -1 if chunkSize is not a power of two.
+    private final int chunkShift;
     private final long capacity;
 
-    private long position = 0;
-    private long limit;
-
     /**
      * Creates a new {@code MultiBuffer} backed by the given
      * {@link ByteBuffer}s.
      *
-     * <p>The total capacity and limit are set to the sum of the
-     * buffer capacities.
+     * <p>The total capacity is set to the sum of the buffer capacities.
      *
      * @param buffers   the backing buffers (cloned into an internal array)
      * @param chunkSize the size of each buffer chunk
@@ -67,222 +69,154 @@ final class MultiBuffer implements Buffer {
             capacity += buffer.capacity();
         }
         this.capacity = capacity;
-        this.limit = capacity;
         this.chunkSize = chunkSize;
+        this.chunkShift = Integer.bitCount(chunkSize) == 1
+            ? Integer.numberOfTrailingZeros(chunkSize)
+            : -1;
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public long capacity() {
-        return capacity;
+    private int chunk(long index) {
+        return (int) (this.chunkShift >= 0 ? index >>> this.chunkShift : index / this.chunkSize);
     }
 
     /** {@inheritDoc} */
     @Override
-    public long position() {
-        return position;
+    public long capacity() {
+        return capacity;
     }
 
     /** {@inheritDoc} */
     @Override
-    public Buffer position(long newPosition) {
-        if (newPosition < 0 || newPosition > limit) {
-            throw new IllegalArgumentException("Invalid position: " + newPosition);
+    public byte getByte(long index) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException("Index: " + index);
         }
-        this.position = newPosition;
-        return this;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public long limit() {
-        return limit;
+        var bufIndex = chunk(index);
+        var offset = (int) (index - (long) bufIndex * this.chunkSize);
+        return buffers[bufIndex].get(offset);
     }
 
     /** {@inheritDoc} */
     @Override
-    public Buffer limit(long newLimit) {
-        if (newLimit < 0 || newLimit > capacity) {
-            throw new IllegalArgumentException("Invalid limit: " + newLimit);
+    public int getInt(long index) {
+        if (index < 0 || index > capacity - 4) {
+            throw new IndexOutOfBoundsException("Index: " + index);
         }
-        this.limit = newLimit;
-        if (position > limit) {
-            position = limit;
+        var bufIndex = chunk(index);
+        var offset = (int) (index - (long) bufIndex * this.chunkSize);
+        var buf = buffers[bufIndex];
+        if (offset <= buf.capacity() - 4) {
+            return buf.getInt(offset);
         }
-        return this;
+        return (int) getSpanning(bufIndex, offset, 4);
     }
 
     /** {@inheritDoc} */
     @Override
-    public byte get() {
-        var value = get(position);
-        position++;
-        return value;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public Buffer get(byte[] dst) {
-        if (position > limit - dst.length) {
-            throw new IndexOutOfBoundsException(
-                    "Read exceeds limit: position=" + position
-                            + ", length=" + dst.length
-                            + ", limit=" + limit
-            );
+    public long getLong(long index) {
+        if (index < 0 || index > capacity - 8) {
+            throw new IndexOutOfBoundsException("Index: " + index);
         }
-        var pos = position;
-        var offset = 0;
-        var length = dst.length;
-        while (length > 0) {
-            var bufIndex = (int) (pos / this.chunkSize);
-            var bufOffset = (int) (pos % this.chunkSize);
-            var buf = buffers[bufIndex];
-            buf.position(bufOffset);
-            var toRead = Math.min(buf.remaining(), length);
-            buf.get(dst, offset, toRead);
-            pos += toRead;
-            offset += toRead;
-            length -= toRead;
+        var bufIndex = chunk(index);
+        var offset = (int) (index - (long) bufIndex * this.chunkSize);
+        var buf = buffers[bufIndex];
+        if (offset <= buf.capacity() - 8) {
+            return buf.getLong(offset);
         }
-        position = pos;
-        return this;
+        return getSpanning(bufIndex, offset, 8);
     }
 
     /** {@inheritDoc} */
     @Override
-    public byte get(long index) {
-        if (index < 0 || index >= limit) {
+    public long getUnsigned(long index, int size) {
+        if (index < 0 || index > capacity - size) {
             throw new IndexOutOfBoundsException("Index: " + index);
         }
-        var bufIndex = (int) (index / this.chunkSize);
-        var offset = (int) (index % this.chunkSize);
-        return buffers[bufIndex].get(offset);
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public double getDouble() {
-        var bufIndex = (int) (position / this.chunkSize);
-        var off = (int) (position % this.chunkSize);
-        var buf = buffers[bufIndex];
-        buf.position(off);
-        if (buf.remaining() >= 8) {
-            var value = buf.getDouble();
-            position += 8;
-            return value;
-        } else {
-            var eight = new byte[8];
-            get(eight);
-            return ByteBuffer.wrap(eight).getDouble();
+        if (size == 0) {
+            return 0;
         }
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public float getFloat() {
-        var bufIndex = (int) (position / this.chunkSize);
-        var off = (int) (position % this.chunkSize);
+        var bufIndex = chunk(index);
+        var offset = (int) (index - (long) bufIndex * this.chunkSize);
         var buf = buffers[bufIndex];
-        buf.position(off);
-        if (buf.remaining() >= 4) {
-            var value = buf.getFloat();
-            position += 4;
-            return value;
-        } else {
-            var four = new byte[4];
-            get(four);
-            return ByteBuffer.wrap(four).getFloat();
+        if (offset <= buf.capacity() - 8) {
+            return buf.getLong(offset) >>> (64 - size * 8);
         }
+        return getSpanning(bufIndex, offset, size);
     }
 
-    /** {@inheritDoc} */
-    @Override
-    public Buffer duplicate() {
-        var duplicatedBuffers = new ByteBuffer[buffers.length];
-        for (int i = 0; i < buffers.length; i++) {
-            duplicatedBuffers[i] = buffers[i].duplicate();
+    // Reads size bytes byte by byte, moving on to the next chunk when the
+    // end of one is reached. This is only used within 8 bytes of the end of
+    // a chunk, and the caller has checked the bounds.
+    private long getSpanning(int bufIndex, int offset, int size) {
+        var buf = buffers[bufIndex];
+        var value = 0L;
+        for (int i = 0; i < size; i++) {
+            if (offset == buf.capacity()) {
+                buf = buffers[++bufIndex];
+                offset = 0;
+            }
+            value = (value << 8) | (buf.get(offset++) & 0xFF);
         }
-        var copy = new MultiBuffer(duplicatedBuffers, chunkSize);
-        copy.position = this.position;
-        copy.limit = this.limit;
-        return copy;
+        return value;
     }
 
     /** {@inheritDoc} */
     @Override
-    public String decode(CharsetDecoder decoder)
-            throws CharacterCodingException {
-        return this.decode(decoder, Integer.MAX_VALUE);
-    }
-
-    String decode(CharsetDecoder decoder, int maxCharBufferSize)
-            throws CharacterCodingException {
-        var remainingBytes = limit - position;
-
-        // Cannot allocate more than maxCharBufferSize for CharBuffer
-        if (remainingBytes > maxCharBufferSize) {
-            throw new IllegalStateException(
-                    "Decoding region too large to fit in a CharBuffer: " + remainingBytes
+    public void getBytes(long index, byte[] dst) {
+        if (index < 0 || index > capacity - dst.length) {
+            throw new IndexOutOfBoundsException(
+                    "Read exceeds capacity: index=" + index
+                            + ", length=" + dst.length
+                            + ", capacity=" + capacity
             );
         }
-
-        var out = CharBuffer.allocate((int) remainingBytes);
-        var pos = position;
-
-        while (remainingBytes > 0) {
-            // Locate which underlying buffer we are in
-            var bufIndex = (int) (pos / this.chunkSize);
-            var bufOffset = (int) (pos % this.chunkSize);
-
-            var srcView = buffers[bufIndex];
-            var savedLimit = srcView.limit();
-            srcView.position(bufOffset);
-
-            var toRead = (int) Math.min(srcView.remaining(), remainingBytes);
-            srcView.limit(bufOffset + toRead);
-
-            var result = decoder.decode(srcView, out, false);
-            srcView.limit(savedLimit);
-
-            if (result.isError()) {
-                result.throwException();
-            }
-
-            pos += toRead;
-            remainingBytes -= toRead;
+        var bufIndex = chunk(index);
+        var bufOffset = (int) (index - (long) bufIndex * this.chunkSize);
+        var offset = 0;
+        var length = dst.length;
+        while (length > 0) {
+            var buf = buffers[bufIndex++];
+            var toRead = Math.min(buf.capacity() - bufOffset, length);
+            buf.get(bufOffset, dst, offset, toRead);
+            bufOffset = 0;
+            offset += toRead;
+            length -= toRead;
         }
-
-        // Update this MultiBuffer’s logical position
-        this.position = pos;
-
-        out.flip();
-        return out.toString();
     }
 
     /**
      * Creates a read-only {@code MultiBuffer} by memory-mapping the given
-     * {@link FileChannel}.
+     * {@link FileChannel} in chunks of {@link #MAPPED_CHUNK_SIZE} bytes.
      *
      * @param channel the file channel to map
      * @return a new {@code MultiBuffer} backed by memory-mapped segments
      * @throws IOException if an I/O error occurs
      */
     public static MultiBuffer mapFromChannel(FileChannel channel) throws IOException {
+        return new MultiBuffer(mapChunks(channel), MAPPED_CHUNK_SIZE);
+    }
+
+    /*
+     * Maps the channel in chunks of MAPPED_CHUNK_SIZE bytes. The returned
+     * buffers are the mappings themselves rather than read-only views of
+     * them, so that they can be unmapped.
+     */
+    static ByteBuffer[] mapChunks(FileChannel channel) throws IOException {
         var size = channel.size();
         if (size <= 0) {
             throw new IllegalArgumentException("File channel has no data");
         }
 
-        var fullChunks = (int) (size / DEFAULT_CHUNK_SIZE);
-        var remainder = (int) (size % DEFAULT_CHUNK_SIZE);
+        var fullChunks = (int) (size / MAPPED_CHUNK_SIZE);
+        var remainder = (int) (size % MAPPED_CHUNK_SIZE);
         var totalChunks = fullChunks + (remainder > 0 ? 1 : 0);
 
         var buffers = new ByteBuffer[totalChunks];
         var remaining = size;
 
         for (int i = 0; i < totalChunks; i++) {
-            var chunkPos = (long) i * DEFAULT_CHUNK_SIZE;
-            var chunkSize = Math.min(DEFAULT_CHUNK_SIZE, remaining);
+            var chunkPos = (long) i * MAPPED_CHUNK_SIZE;
+            var chunkSize = Math.min(MAPPED_CHUNK_SIZE, remaining);
             buffers[i] = channel.map(
                     FileChannel.MapMode.READ_ONLY,
                     chunkPos,
@@ -290,6 +224,6 @@ final class MultiBuffer implements Buffer {
             );
             remaining -= chunkSize;
         }
-        return new MultiBuffer(buffers, DEFAULT_CHUNK_SIZE);
+        return buffers;
     }
 }
@@ -19,27 +19,29 @@ public final class Networks<T> implements Iterator<DatabaseRecord<T>> {
     private final Deque<NetworkNode> nodes;
     private NetworkNode lastNode;
     private final boolean includeAliasedNetworks;
-    private final Buffer buffer; /* Stores the buffer for Next() calls */
+    /* Stores the buffer for Next() calls. It is acquired for each call, so
+       that an iterator that is not exhausted does not keep it mapped. */
+    private final BufferHolder bufferHolder;
     private final Class<T> typeParameterClass;
 
     /**
      * Constructs a Networks instance.
      *
      * @param reader The reader object.
+     * @param bufferHolder The reader's buffer.
      * @param includeAliasedNetworks The boolean to include aliased networks.
      * @param nodes The initial nodes array to start Networks iterator with.
      * @param typeParameterClass The type of data returned by the iterator.
-     * @throws ClosedDatabaseException Exception for a closed database.
      */
     Networks(
             Reader reader,
+            BufferHolder bufferHolder,
             boolean includeAliasedNetworks,
             NetworkNode[] nodes,
-            Class<T> typeParameterClass)
-        throws ClosedDatabaseException {
+            Class<T> typeParameterClass) {
         this.reader = reader;
         this.includeAliasedNetworks = includeAliasedNetworks;
-        this.buffer = reader.getBufferHolder().get();
+        this.bufferHolder = bufferHolder;
         this.nodes = new ArrayDeque<>();
         this.typeParameterClass = typeParameterClass;
         for (NetworkNode node : nodes) {
@@ -75,13 +77,18 @@ public final class Networks<T> implements Iterator<DatabaseRecord<T>> {
             }
 
             var network = new Network(ipAddr, prefixLength);
-            var data = this.reader.resolveDataPointer(
-                this.buffer,
-                this.lastNode.pointer,
-                this.typeParameterClass,
-                ipAddr,
-                network
-            );
+            T data;
+            this.bufferHolder.acquire();
+            try {
+                data = this.reader.resolveDataPointer(
+                    this.bufferHolder.get(),
+                    this.lastNode.pointer,
+                    this.typeParameterClass,
+                    new LookupContext(ipAddr, network)
+                );
+            } finally {
+                this.bufferHolder.release();
+            }
 
             return new DatabaseRecord<>(data, network);
         } catch (IOException e) {
@@ -111,6 +118,19 @@ public final class Networks<T> implements Iterator<DatabaseRecord<T>> {
     */
     @Override
     public boolean hasNext()  {
+        try {
+            this.bufferHolder.acquire();
+        } catch (ClosedDatabaseException e) {
+            throw new NetworksIterationException(e);
+        }
+        try {
+            return this.findNext(this.bufferHolder.get());
+        } finally {
+            this.bufferHolder.release();
+        }
+    }
+
+    private boolean findNext(Buffer buffer) {
         while (!this.nodes.isEmpty()) {
             var node = this.nodes.pop();
 
@@ -136,15 +156,11 @@ public final class Networks<T> implements Iterator<DatabaseRecord<T>> {
 
                 ipRight[node.prefix >> 3] |= 1 << (7 - (node.prefix % 8));
 
-                try {
-                    var rightPointer = this.reader.readNode(this.buffer, node.pointer, 1);
-                    node.prefix++;
+                var rightPointer = this.reader.readNode(buffer, node.pointer, 1);
+                node.prefix++;
 
-                    this.nodes.push(new NetworkNode(ipRight, node.prefix, rightPointer));
-                    node.pointer = this.reader.readNode(this.buffer, node.pointer, 0);
-                } catch (InvalidDatabaseException e) {
-                    throw new NetworksIterationException(e);
-                }
+                this.nodes.push(new NetworkNode(ipRight, node.prefix, rightPointer));
+                node.pointer = this.reader.readNode(buffer, node.pointer, 0);
             }
         }
         return false;
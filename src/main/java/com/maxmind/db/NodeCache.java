@@ -1,6 +1,7 @@
 package com.maxmind.db;
 
 import java.io.IOException;
+import java.util.function.BiConsumer;
 
 /**
  * NodeCache is an interface for a cache that stores decoded values from the
@@ -35,4 +36,38 @@ public interface NodeCache {
      */
     DecodedValue get(CacheKey<?> key, Loader loader) throws IOException;
 
+    /**
+     * Calls <code>action</code> with each key and value in the cache. This is
+     * used by {@link Reader#migrateCacheFrom(Reader)} to find the values to
+     * copy to the cache of a reader of a newer database. The values may
+     * change while this is called, and <code>action</code> need not see
+     * values added meanwhile.
+     *
+     * <p>The default implementation does nothing, so the values of a cache
+     * that does not override it are not copied.
+     *
+     * @param action
+     *            the function to call with each key and value
+     */
+    default void forEach(BiConsumer<CacheKey<?>, DecodedValue> action) {
+    }
+
+    /**
+     * Adds <code>value</code> to the cache under <code>key</code>, unless the
+     * cache already holds a value for it. This is used by
+     * {@link Reader#migrateCacheFrom(Reader)} to copy values from the cache
+     * of a reader of an older database. Unlike {@link #get}, it does not
+     * count as a miss in the cache's statistics.
+     *
+     * <p>The default implementation does nothing, so no values are copied to
+     * a cache that does not override it.
+     *
+     * @param key
+     *            the key to add
+     * @param value
+     *            the value for the key
+     */
+    default void putIfAbsent(CacheKey<?> key, DecodedValue value) {
+    }
+
 }
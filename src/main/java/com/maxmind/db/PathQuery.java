@@ -0,0 +1,135 @@
+package com.maxmind.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled set of paths to the values to decode from a record, created
+ * by {@link Reader#compile(String...)} and used with
+ * {@link Reader#query(byte[], PathQuery, QueryResult)}. A query only walks
+ * the maps and arrays on its paths and skips everything else in the record,
+ * so it is much cheaper than decoding the record when only a few of its
+ * values are needed.
+ *
+ * <p>A path is a sequence of map keys separated by dots, e.g.,
+ * {@code country.iso_code}. A segment that is a non-negative integer, e.g.,
+ * the {@code 0} in {@code subdivisions.0.iso_code}, is also an index into an
+ * array.
+ *
+ * <p>A query does not depend on the database it was compiled for, so it may
+ * be used with any reader, e.g., after a {@link ReloadingReader} replaces
+ * its database. Instances are immutable and thread-safe.
+ */
+public final class PathQuery {
+    private final List<String> paths;
+    private final Node root;
+
+    PathQuery(String... paths) {
+        var root = new NodeBuilder();
+        for (int i = 0; i < paths.length; i++) {
+            var path = paths[i];
+            var node = root;
+            for (var segment : path.split("\\.", -1)) {
+                if (segment.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid path: \"" + path + "\"");
+                }
+                node = node.children.computeIfAbsent(segment, k -> new NodeBuilder());
+            }
+            if (node.pathIndex >= 0) {
+                throw new IllegalArgumentException("Duplicate path: \"" + path + "\"");
+            }
+            node.pathIndex = i;
+        }
+        this.paths = List.of(paths);
+        this.root = root.build();
+    }
+
+    /**
+     * @return the paths of the query, in the order of their values in a
+     *         {@link QueryResult}.
+     */
+    public List<String> paths() {
+        return this.paths;
+    }
+
+    /**
+     * @return the number of paths in the query.
+     */
+    public int size() {
+        return this.paths.size();
+    }
+
+    Node root() {
+        return this.root;
+    }
+
+    @Override
+    public String toString() {
+        return "PathQuery" + this.paths;
+    }
+
+    /*
+     * A map key or array index on one or more of the paths.
+     */
+    record Node(
+        // The index of the path that ends at this node, or -1.
+        int pathIndex,
+        Node[] children,
+        // The positions of the children in children, by their keys.
+        Map<String, Integer> keyIndexes,
+        KeyNameTable keyNames,
+        // The array index that each child's key is, or -1.
+        int[] arrayIndexes
+    ) {
+        /*
+         * Returns the position in children of the child for the array
+         * element at index, or -1.
+         */
+        int arrayChild(int index) {
+            for (int i = 0; i < this.arrayIndexes.length; i++) {
+                if (this.arrayIndexes[i] == index) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class NodeBuilder {
+        private final Map<String, NodeBuilder> children = new LinkedHashMap<>();
+        private int pathIndex = -1;
+
+        Node build() {
+            var children = new ArrayList<Node>();
+            var keyIndexes = new HashMap<String, Integer>();
+            var arrayIndexes = new int[this.children.size()];
+            for (var entry : this.children.entrySet()) {
+                arrayIndexes[children.size()] = arrayIndex(entry.getKey());
+                keyIndexes.put(entry.getKey(), children.size());
+                children.add(entry.getValue().build());
+            }
+            return new Node(
+                this.pathIndex,
+                children.toArray(new Node[0]),
+                keyIndexes,
+                new KeyNameTable(keyIndexes),
+                arrayIndexes
+            );
+        }
+
+        private static int arrayIndex(String segment) {
+            if (!segment.chars().allMatch(c -> c >= '0' && c <= '9')
+                || (segment.length() > 1 && segment.charAt(0) == '0')) {
+                return -1;
+            }
+            try {
+                return Integer.parseInt(segment);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
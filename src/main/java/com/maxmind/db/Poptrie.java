@@ -0,0 +1,219 @@
+package com.maxmind.db;
+
+import java.util.Arrays;
+
+/*
+ * A poptrie built from the search tree. Each node of the poptrie covers
+ * STRIDE levels of the binary search tree, so a lookup visits at most
+ * ceil(bitCount / STRIDE) nodes rather than one node per bit.
+ *
+ * A node has a bitmap with a bit for each of the 2^STRIDE values of the next
+ * STRIDE bits of the address. A set bit in the vector means the value leads
+ * to another poptrie node. These children are stored contiguously, so the
+ * index of a child is the node's child base plus the number of set bits in
+ * the vector up to and including the value. The leaf vector works the same
+ * way for leaves, except that a run of values with the same leaf shares a
+ * single copy of it, marked by a set bit at the start of the run.
+ *
+ * Leaves are the record and prefix length packed as in SearchTree.traverse,
+ * so a lookup returns exactly what walking the tree bit by bit would.
+ *
+ * See Asai and Ohara, "Poptrie: A Compressed Trie with Population Count for
+ * Fast and Scalable Software IP Routing Table Lookup", SIGCOMM 2015.
+ */
+final class Poptrie {
+    private static final int STRIDE = 6;
+
+    // The longs per node: the vector, the leaf vector, and the child base in
+    // the upper 32 bits with the leaf base in the lower 32 bits. These are
+    // stored together so that a node is usually in a single cache line.
+    private static final int NODE_SIZE = 3;
+
+    private final int bitCount;
+    private final long[] nodes;
+    private final long[] leaves;
+
+    private Poptrie(int bitCount, long[] nodes, long[] leaves) {
+        this.bitCount = bitCount;
+        this.nodes = nodes;
+        this.leaves = leaves;
+    }
+
+    /*
+     * Builds a poptrie for lookups of bitCount bits starting at startNode of
+     * the search tree.
+     */
+    static Poptrie build(SearchTree searchTree, Buffer buffer, long startNode, int bitCount) {
+        var builder = new PoptrieBuilder(searchTree, buffer, bitCount);
+        builder.build(builder.allocateNodes(1), startNode, 0);
+        return new Poptrie(
+            bitCount,
+            Arrays.copyOf(builder.nodes, builder.nodeCount * NODE_SIZE),
+            Arrays.copyOf(builder.leaves, builder.leafCount)
+        );
+    }
+
+    /*
+     * The number of bits of the address that lookups follow. Lookups of a
+     * different number of bits must use the search tree.
+     */
+    int bitCount() {
+        return this.bitCount;
+    }
+
+    /*
+     * Returns the record and prefix length for the address, packed as in
+     * SearchTree.traverse. The address is given as two big-endian 64-bit
+     * words, with IPv4 addresses in the top 32 bits of high.
+     */
+    long lookup(long high, long low) {
+        var nodes = this.nodes;
+        int index = 0;
+        int offset = 0;
+        long vector = nodes[0];
+        int value = chunk(high, low, offset);
+        while ((vector & (1L << value)) != 0) {
+            int childBase = (int) (nodes[index * NODE_SIZE + 2] >>> 32);
+            index = childBase + Long.bitCount(vector & ((2L << value) - 1)) - 1;
+            offset += STRIDE;
+            value = chunk(high, low, offset);
+            vector = nodes[index * NODE_SIZE];
+        }
+        long leafVector = nodes[index * NODE_SIZE + 1];
+        int leafBase = (int) nodes[index * NODE_SIZE + 2];
+        return this.leaves[leafBase + Long.bitCount(leafVector & ((2L << value) - 1)) - 1];
+    }
+
+    /*
+     * Returns the STRIDE bits of the address starting at offset. Bits past
+     * the end of the address are zero.
+     */
+    private static int chunk(long high, long low, int offset) {
+        if (offset <= 64 - STRIDE) {
+            return (int) (high >>> (64 - STRIDE - offset)) & ((1 << STRIDE) - 1);
+        }
+        if (offset < 64) {
+            // The bits span both words.
+            return (int) ((high << (offset - 64 + STRIDE)) | (low >>> (128 - STRIDE - offset)))
+                & ((1 << STRIDE) - 1);
+        }
+        int lowOffset = offset - 64;
+        if (lowOffset <= 64 - STRIDE) {
+            return (int) (low >>> (64 - STRIDE - lowOffset)) & ((1 << STRIDE) - 1);
+        }
+        return (int) (low << (lowOffset - 64 + STRIDE)) & ((1 << STRIDE) - 1);
+    }
+
+    private static final class PoptrieBuilder {
+        private final SearchTree searchTree;
+        private final Buffer buffer;
+        private final int bitCount;
+
+        private long[] nodes = new long[64 * NODE_SIZE];
+        private int nodeCount;
+        private long[] leaves = new long[64];
+        private int leafCount;
+
+        PoptrieBuilder(SearchTree searchTree, Buffer buffer, int bitCount) {
+            this.searchTree = searchTree;
+            this.buffer = buffer;
+            this.bitCount = bitCount;
+        }
+
+        int allocateNodes(int count) {
+            int first = this.nodeCount;
+            this.nodeCount += count;
+            if (this.nodeCount * NODE_SIZE > this.nodes.length) {
+                this.nodes = Arrays.copyOf(
+                    this.nodes,
+                    Math.max(this.nodes.length * 2, this.nodeCount * NODE_SIZE)
+                );
+            }
+            return first;
+        }
+
+        private void addLeaf(long leaf) {
+            if (this.leafCount == this.leaves.length) {
+                this.leaves = Arrays.copyOf(this.leaves, this.leaves.length * 2);
+            }
+            this.leaves[this.leafCount++] = leaf;
+        }
+
+        /*
+         * Fills in the poptrie node at index for the search tree record
+         * reached after following depth bits. The node's children are
+         * allocated together before any of them are built so that they are
+         * contiguous.
+         */
+        void build(int index, long record, int depth) {
+            var entries = new long[1 << STRIDE];
+            this.expand(entries, record, depth, 0, 0);
+
+            long vector = 0;
+            for (int value = 0; value < entries.length; value++) {
+                if (this.isNode(entries[value], depth)) {
+                    vector |= 1L << value;
+                }
+            }
+
+            final int childBase = this.allocateNodes(Long.bitCount(vector));
+            final int leafBase = this.leafCount;
+            long leafVector = 0;
+            long previous = -1;
+            for (int value = 0; value < entries.length; value++) {
+                if ((vector & (1L << value)) != 0 || entries[value] == previous) {
+                    continue;
+                }
+                leafVector |= 1L << value;
+                this.addLeaf(entries[value]);
+                previous = entries[value];
+            }
+
+            this.nodes[index * NODE_SIZE] = vector;
+            this.nodes[index * NODE_SIZE + 1] = leafVector;
+            this.nodes[index * NODE_SIZE + 2] = ((long) childBase << 32) | leafBase;
+
+            int child = childBase;
+            for (int value = 0; value < entries.length; value++) {
+                if ((vector & (1L << value)) != 0) {
+                    this.build(child++, SearchTree.recordOf(entries[value]), depth + STRIDE);
+                }
+            }
+        }
+
+        /*
+         * Walks up to STRIDE levels of the search tree below record, storing
+         * where the walk for each value of the next STRIDE bits ends. As in
+         * SearchTree.traverse, a walk ends early at a record that is not a
+         * node or after bitCount bits.
+         */
+        private void expand(long[] entries, long record, int depth, int level, int value) {
+            if (level == STRIDE || record >= this.searchTree.nodeCount
+                || depth == this.bitCount) {
+                int shift = STRIDE - level;
+                Arrays.fill(
+                    entries,
+                    value << shift,
+                    (value + 1) << shift,
+                    SearchTree.pack(record, depth)
+                );
+                return;
+            }
+            for (int i = 0; i < 2; i++) {
+                this.expand(
+                    entries,
+                    this.searchTree.readNode(this.buffer, record, i),
+                    depth + 1,
+                    level + 1,
+                    (value << 1) | i
+                );
+            }
+        }
+
+        private boolean isNode(long entry, int depth) {
+            return SearchTree.prefixLengthOf(entry) == depth + STRIDE
+                && SearchTree.recordOf(entry) < this.searchTree.nodeCount
+                && depth + STRIDE < this.bitCount;
+        }
+    }
+}
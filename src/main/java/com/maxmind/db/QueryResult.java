@@ -0,0 +1,84 @@
+package com.maxmind.db;
+
+import java.util.Arrays;
+
+/**
+ * A mutable holder for the result of one of the {@code Reader.query}
+ * methods, with the value at each path of the {@link PathQuery}. A single
+ * instance may be reused for many queries to avoid allocating a holder for
+ * each one.
+ *
+ * <p>Instances are not thread-safe. Each thread should use its own holder.
+ */
+public final class QueryResult {
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] values = EMPTY;
+    private int prefixLength;
+    private boolean found;
+
+    /**
+     * Creates an empty result holder.
+     */
+    public QueryResult() {
+    }
+
+    /*
+     * Clears the result for a query with size paths and returns the array
+     * to decode the values into.
+     */
+    Object[] reset(int size) {
+        if (this.values.length != size) {
+            this.values = new Object[size];
+        } else {
+            Arrays.fill(this.values, null);
+        }
+        this.prefixLength = 0;
+        this.found = false;
+        return this.values;
+    }
+
+    void set(int prefixLength, boolean found) {
+        this.prefixLength = prefixLength;
+        this.found = found;
+    }
+
+    /**
+     * @param index the index of the path in the query.
+     * @return the value at the path from the most recent query, decoded as
+     *         with {@code Object.class}. This will be {@code null} if there
+     *         was no data for the address or the record has no value at the
+     *         path.
+     * @throws IndexOutOfBoundsException if <code>index</code> is not the
+     *                                   index of a path in the query.
+     */
+    public Object get(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * @return the number of values, which is the number of paths in the
+     *         query.
+     */
+    public int size() {
+        return this.values.length;
+    }
+
+    /**
+     * @return the prefix length of the network associated with the record
+     *         from the most recent query. When an IPv4 address is looked up
+     *         in an IPv6 database, this is relative to the 32-bit IPv4
+     *         address, as with {@link Network#prefixLength()}.
+     */
+    public int prefixLength() {
+        return this.prefixLength;
+    }
+
+    /**
+     * @return whether the most recent query found data for the address. The
+     *         record may still have no value at some or all of the paths.
+     */
+    public boolean hasData() {
+        return this.found;
+    }
+}
@@ -0,0 +1,594 @@
+package com.maxmind.db;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A reader for a MaxMind DB file that is replaced while in use, e.g., by
+ * <code>geoipupdate</code>. It watches the file and, when it changes, opens
+ * and validates the new database on a background thread, swaps it in
+ * atomically, and closes the old {@link Reader} once the lookups in
+ * progress on it have finished.
+ *
+ * <p>Lookups never wait for a reload. A lookup that starts on the old
+ * database just as it is closed is retried on the new one.
+ *
+ * <p>The file is watched with a {@link WatchService}, so a change is
+ * usually noticed at once. The file is also checked every
+ * {@link Builder#pollInterval(Duration) poll interval}, which covers file
+ * systems on which a {@code WatchService} is not available or misses
+ * changes. A change is a difference in the file's modification time, size,
+ * or file key (e.g., its inode).
+ *
+ * <p>A database opened in {@link Reader.FileMode#MEMORY_MAPPED} mode must
+ * be replaced by writing the new database to another file and renaming it
+ * over the old one, as <code>geoipupdate</code> does. Writing to the mapped
+ * file in place may crash the JVM. Use {@link Reader.FileMode#MEMORY} if
+ * the file is written in place; a partially written database is then
+ * rejected and the old one kept until the next change.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * ReloadingReader reader = new ReloadingReader.Builder(Path.of("GeoIP2-City.mmdb"))
+ *     .readerOptions(builder -&gt; builder.withCache(new CHMCache()))
+ *     .build();
+ * </pre>
+ */
+public final class ReloadingReader implements Closeable {
+    private final Path database;
+    private final Consumer<Reader.Builder> readerOptions;
+    private final Warmer warmer;
+    private final Listener listener;
+    private final Duration pollInterval;
+    private final boolean migrateCache;
+    private final AtomicReference<Reader> current = new AtomicReference<>();
+    private final Thread watcher;
+
+    // Serializes reloads and closing. Lookups never take it.
+    private final Object reloadLock = new Object();
+    // The version of the file last opened, or that failed to open, so that
+    // a version is only tried once. Guarded by reloadLock.
+    private FileVersion attemptedVersion;
+    private volatile boolean closed;
+
+    /**
+     * Validates and warms up a newly opened database before it replaces the
+     * current one.
+     */
+    @FunctionalInterface
+    public interface Warmer {
+        /**
+         * Prepares the new reader, e.g., by looking up addresses to fill
+         * its caches. It is called on the thread doing the reload, before
+         * the reader is used for any other lookups.
+         *
+         * @param reader the new reader
+         * @throws IOException to reject the new database. The current one
+         *                     is then kept.
+         */
+        void warm(Reader reader) throws IOException;
+    }
+
+    /**
+     * Receives the outcome of reloads. The methods are called on the thread
+     * doing the reload.
+     */
+    public interface Listener {
+        /**
+         * Called after a new database has replaced the current one.
+         *
+         * @param metadata the metadata of the new database
+         */
+        default void reloaded(Metadata metadata) {
+        }
+
+        /**
+         * Called when a changed file could not be opened or was rejected
+         * by the {@link Warmer}. The current database is kept, and the file
+         * is tried again once it changes again.
+         *
+         * @param exception the cause of the failure
+         */
+        default void reloadFailed(Exception exception) {
+        }
+    }
+
+    private ReloadingReader(Builder builder) throws IOException {
+        this.database = builder.database;
+        this.readerOptions = builder.readerOptions;
+        this.warmer = builder.warmer;
+        this.listener = builder.listener;
+        this.pollInterval = builder.pollInterval;
+        this.migrateCache = builder.migrateCache;
+
+        this.attemptedVersion = FileVersion.of(this.database);
+        this.current.set(this.open());
+
+        if (builder.watch) {
+            this.watcher = new Thread(this::watch,
+                "maxmind-db-reload-" + this.database.getFileName());
+            this.watcher.setDaemon(true);
+            this.watcher.start();
+        } else {
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * Builder for {@link ReloadingReader}.
+     */
+    public static final class Builder {
+        private final Path database;
+        private Consumer<Reader.Builder> readerOptions = builder -> {
+        };
+        private Warmer warmer;
+        private Listener listener = new Listener() {
+        };
+        private Duration pollInterval = Duration.ofMinutes(1);
+        private boolean watch = true;
+        private boolean migrateCache = true;
+
+        /**
+         * @param database the MaxMind DB file to read and watch.
+         */
+        public Builder(Path database) {
+            this.database = database;
+        }
+
+        /**
+         * Sets options for each {@link Reader} opened, e.g., its file mode
+         * and caches. As a cache holds values by their offset in a
+         * particular database, it must not be shared between readers, so a
+         * cache should be created within <code>readerOptions</code>. The
+         * values that are unchanged in a new database are copied from the
+         * caches of the previous reader, unless
+         * {@link #migrateCache(boolean)} is unset.
+         *
+         * <p>Readers are opened with
+         * {@link Reader.Builder#unmapOnClose(boolean)} set, so that a
+         * replaced database is unmapped once the lookups on it have
+         * finished. This costs each lookup two atomic operations on a count
+         * shared by all threads. To avoid that, unset it here; a replaced
+         * database then stays mapped until it is garbage collected.
+         *
+         * @param readerOptions a function that sets options on the builder
+         *                      of each reader
+         * @return Builder object
+         */
+        public Builder readerOptions(Consumer<Reader.Builder> readerOptions) {
+            this.readerOptions = Objects.requireNonNull(readerOptions);
+            return this;
+        }
+
+        /**
+         * @param warmer a function called with each new reader, other than
+         *               the first, before it replaces the current one. By
+         *               default, a new database is used once it has been
+         *               opened.
+         * @return Builder object
+         */
+        public Builder warmUp(Warmer warmer) {
+            this.warmer = warmer;
+            return this;
+        }
+
+        /**
+         * @param listener a listener for the outcome of reloads, e.g., to
+         *                 log them. As reloads happen in the background,
+         *                 this is the only way to learn that a new file was
+         *                 rejected.
+         * @return Builder object
+         */
+        public Builder listener(Listener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        /**
+         * @param pollInterval how often to check the file for changes in
+         *                     addition to watching it. The default is one
+         *                     minute.
+         * @return Builder object
+         * @throws IllegalArgumentException if the interval is not positive
+         */
+        public Builder pollInterval(Duration pollInterval) {
+            if (pollInterval.isNegative() || pollInterval.isZero()) {
+                throw new IllegalArgumentException(
+                    "The poll interval must be positive: " + pollInterval);
+            }
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /**
+         * @param watch whether to watch the file for changes on a background
+         *              thread. If false, the database is only reloaded by
+         *              {@link ReloadingReader#reload()}. The default is
+         *              true.
+         * @return Builder object
+         */
+        public Builder watch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        /**
+         * @param migrateCache whether to copy the cached values that are
+         *                     unchanged in a new database from the caches of
+         *                     the current reader to those of the new one,
+         *                     before it is warmed up. See
+         *                     {@link Reader#migrateCacheFrom(Reader)}. The
+         *                     default is true.
+         * @return Builder object
+         */
+        public Builder migrateCache(boolean migrateCache) {
+            this.migrateCache = migrateCache;
+            return this;
+        }
+
+        /**
+         * Opens the database and starts watching it.
+         *
+         * @return the reader
+         * @throws IOException if the database cannot be opened
+         */
+        public ReloadingReader build() throws IOException {
+            return new ReloadingReader(this);
+        }
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the current database.
+     *
+     * @param <T>       the type to populate.
+     * @param ipAddress the IP address to look up.
+     * @param cls       the class of object to populate.
+     * @return the object.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#get(InetAddress, Class)
+     */
+    public <T> T get(InetAddress ipAddress, Class<T> cls) throws IOException {
+        return this.withReader(reader -> reader.get(ipAddress, cls));
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the current database.
+     *
+     * @param <T>       the type to populate.
+     * @param ipAddress the IP address to look up.
+     * @param cls       the class of object to populate.
+     * @return the record for the IP address.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#getRecord(InetAddress, Class)
+     */
+    public <T> DatabaseRecord<T> getRecord(InetAddress ipAddress, Class<T> cls)
+        throws IOException {
+        return this.withReader(reader -> reader.getRecord(ipAddress, cls));
+    }
+
+    /**
+     * Looks up <code>address</code> in the current database.
+     *
+     * @param <T>     the type to populate.
+     * @param address the IP address to look up in network byte order.
+     * @param cls     the class of object to populate.
+     * @param result  the holder to store the result in.
+     * @return <code>result</code>.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#lookup(byte[], Class, LookupResult)
+     */
+    public <T> LookupResult<T> lookup(byte[] address, Class<T> cls, LookupResult<T> result)
+        throws IOException {
+        return this.withReader(reader -> reader.lookup(address, cls, result));
+    }
+
+    /**
+     * Looks up the IPv4 address <code>ipv4Address</code> in the current
+     * database.
+     *
+     * @param <T>         the type to populate.
+     * @param ipv4Address the IPv4 address to look up, with the first octet
+     *                    in the most significant byte.
+     * @param cls         the class of object to populate.
+     * @param result      the holder to store the result in.
+     * @return <code>result</code>.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#lookup(int, Class, LookupResult)
+     */
+    public <T> LookupResult<T> lookup(int ipv4Address, Class<T> cls, LookupResult<T> result)
+        throws IOException {
+        return this.withReader(reader -> reader.lookup(ipv4Address, cls, result));
+    }
+
+    /**
+     * Looks up an IPv6 address in the current database.
+     *
+     * @param <T>    the type to populate.
+     * @param high   the most significant 64 bits of the IPv6 address.
+     * @param low    the least significant 64 bits of the IPv6 address.
+     * @param cls    the class of object to populate.
+     * @param result the holder to store the result in.
+     * @return <code>result</code>.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#lookup(long, long, Class, LookupResult)
+     */
+    public <T> LookupResult<T> lookup(
+        long high,
+        long low,
+        Class<T> cls,
+        LookupResult<T> result
+    ) throws IOException {
+        return this.withReader(reader -> reader.lookup(high, low, cls, result));
+    }
+
+    /**
+     * Compiles <code>paths</code> into a query for
+     * {@link #query(byte[], PathQuery, QueryResult)}.
+     *
+     * @param paths the paths of the values to decode.
+     * @return the compiled query.
+     * @see Reader#compile(String...)
+     */
+    public PathQuery compile(String... paths) {
+        return new PathQuery(paths);
+    }
+
+    /**
+     * Looks up <code>ipAddress</code> in the current database, storing the
+     * values at the paths of <code>query</code> in <code>result</code>.
+     *
+     * @param ipAddress the IP address to look up.
+     * @param query     the paths of the values to decode.
+     * @param result    the holder to store the result in.
+     * @return <code>result</code>.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#query(InetAddress, PathQuery, QueryResult)
+     */
+    public QueryResult query(InetAddress ipAddress, PathQuery query, QueryResult result)
+        throws IOException {
+        return this.withReader(reader -> reader.query(ipAddress, query, result));
+    }
+
+    /**
+     * Looks up <code>address</code> in the current database, storing the
+     * values at the paths of <code>query</code> in <code>result</code>.
+     *
+     * @param address the IP address to look up in network byte order.
+     * @param query   the paths of the values to decode.
+     * @param result  the holder to store the result in.
+     * @return <code>result</code>.
+     * @throws IOException if a file I/O error occurs.
+     * @see Reader#query(byte[], PathQuery, QueryResult)
+     */
+    public QueryResult query(byte[] address, PathQuery query, QueryResult result)
+        throws IOException {
+        return this.withReader(reader -> reader.query(address, query, result));
+    }
+
+    /**
+     * Returns the reader for the current database, e.g., to iterate over
+     * its networks. Unlike the lookup methods of this class, its methods are
+     * not retried on a new database, so they throw a
+     * {@link ClosedDatabaseException} once the database has been replaced.
+     *
+     * @return the current reader
+     */
+    public Reader getReader() {
+        return this.current.get();
+    }
+
+    /**
+     * @return the metadata of the current database.
+     */
+    public Metadata getMetadata() {
+        return this.current.get().getMetadata();
+    }
+
+    /**
+     * Opens the database file again and, if it is valid and accepted by the
+     * {@link Warmer}, replaces the current database with it, whether or not
+     * the file has changed. Lookups continue on the current database in the
+     * meantime.
+     *
+     * @throws IOException if the new database cannot be opened or is
+     *                     rejected. The current database is then kept.
+     */
+    public void reload() throws IOException {
+        synchronized (this.reloadLock) {
+            this.attemptedVersion = FileVersion.of(this.database);
+            this.swap();
+        }
+    }
+
+    /**
+     * Stops watching the file and closes the current database.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        if (this.watcher != null) {
+            this.watcher.interrupt();
+        }
+        synchronized (this.reloadLock) {
+            this.current.get().close();
+        }
+    }
+
+    private <T> T withReader(ReaderFunction<T> function) throws IOException {
+        while (true) {
+            var reader = this.current.get();
+            try {
+                return function.apply(reader);
+            } catch (ClosedDatabaseException e) {
+                // Unless this reader has itself been closed, the database
+                // was replaced after this thread got it.
+                if (this.current.get() == reader) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReaderFunction<T> {
+        T apply(Reader reader) throws IOException;
+    }
+
+    private Reader open() throws IOException {
+        var builder = new Reader.Builder(this.database.toFile()).unmapOnClose(true);
+        this.readerOptions.accept(builder);
+        return builder.build();
+    }
+
+    // Must be called with reloadLock held.
+    private void swap() throws IOException {
+        if (this.closed) {
+            throw new ClosedDatabaseException();
+        }
+        var event = JfrEvents.beginDatabaseReload();
+        Reader reader = null;
+        try {
+            reader = this.open();
+            if (this.migrateCache) {
+                var migratedValues = reader.migrateCacheFrom(this.current.get());
+                if (event != null) {
+                    event.migratedValues = migratedValues;
+                }
+            }
+            if (this.warmer != null) {
+                this.warmer.warm(reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (reader != null) {
+                reader.close();
+            }
+            if (event != null && event.shouldCommit()) {
+                event.source = this.database.toString();
+                event.databaseType = reader == null ? null : reader.getMetadata().databaseType();
+                event.failure = e.toString();
+                event.commit();
+            }
+            throw e;
+        }
+
+        // The old database is unmapped once the lookups in progress on it
+        // have finished.
+        this.current.getAndSet(reader).close();
+
+        if (event != null && event.shouldCommit()) {
+            event.source = this.database.toString();
+            event.databaseType = reader.getMetadata().databaseType();
+            event.succeeded = true;
+            event.commit();
+        }
+        this.listener.reloaded(reader.getMetadata());
+    }
+
+    private void reloadIfChanged() {
+        try {
+            synchronized (this.reloadLock) {
+                FileVersion version;
+                try {
+                    version = FileVersion.of(this.database);
+                } catch (NoSuchFileException e) {
+                    // The file is being replaced, or has been removed. The
+                    // current database is kept until a new file appears.
+                    return;
+                }
+                if (version.equals(this.attemptedVersion) || this.closed) {
+                    return;
+                }
+                this.attemptedVersion = version;
+                this.swap();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!this.closed) {
+                this.listener.reloadFailed(e);
+            }
+        }
+    }
+
+    private void watch() {
+        var watchService = this.watchDirectory();
+        try {
+            while (!this.closed) {
+                if (watchService == null) {
+                    Thread.sleep(this.pollInterval.toMillis());
+                } else {
+                    var key = watchService.poll(
+                        this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        // Events for other files in the directory only
+                        // cause the file to be checked, so they are not
+                        // filtered.
+                        key.pollEvents();
+                        if (!key.reset()) {
+                            // The directory is no longer accessible.
+                            closeQuietly(watchService);
+                            watchService = null;
+                        }
+                    }
+                }
+                this.reloadIfChanged();
+            }
+        } catch (InterruptedException e) {
+            // The reader has been closed.
+        } finally {
+            closeQuietly(watchService);
+        }
+    }
+
+    private WatchService watchDirectory() {
+        var directory = this.database.toAbsolutePath().getParent();
+        WatchService watchService = null;
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            return watchService;
+        } catch (IOException | RuntimeException e) {
+            // Fall back to polling.
+            closeQuietly(watchService);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(WatchService watchService) {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it.
+        }
+    }
+
+    private record FileVersion(FileTime lastModified, long size, Object fileKey) {
+        static FileVersion of(Path file) throws IOException {
+            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileVersion(
+                attributes.lastModifiedTime(),
+                attributes.size(),
+                attributes.fileKey()
+            );
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.maxmind.db;
+
+/*
+ * Reads and walks the binary search tree at the start of a MaxMind DB.
+ *
+ * By default, records are read a byte at a time with a switch on the record
+ * size, as the reader always has. When Reader.Builder.specializedSearchTree
+ * is set, an implementation specialized for the database's record size is
+ * selected once when the Reader is created instead, so the per-bit loop does
+ * not branch on the record size and reads each record with a single word
+ * read. All of them read at absolute offsets, which never modify the
+ * buffer's position. This allows the shared buffer to be used from multiple
+ * threads.
+ */
+abstract sealed class SearchTree
+    permits SearchTree.Generic, SearchTree.Record24, SearchTree.Record28, SearchTree.Record32,
+    SearchTree.OnHeap {
+
+    final long nodeCount;
+
+    private SearchTree(long nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    static SearchTree create(int recordSize, long nodeCount, boolean specialized)
+        throws InvalidDatabaseException {
+        if (recordSize != 24 && recordSize != 28 && recordSize != 32) {
+            throw new InvalidDatabaseException("Unknown record size: " + recordSize);
+        }
+        if (!specialized) {
+            return new Generic(recordSize, nodeCount);
+        }
+        return switch (recordSize) {
+            case 24 -> new Record24(nodeCount);
+            case 28 -> new Record28(nodeCount);
+            default -> new Record32(nodeCount);
+        };
+    }
+
+    /*
+     * Decodes every record of the tree into an array so that lookups do not
+     * need to read the tree from the buffer. The array holds two records per
+     * node, so the tree must have fewer than 2^30 nodes. The database is
+     * valid otherwise, so a larger tree is reported as an unsupported mode
+     * rather than as an invalid database.
+     */
+    static SearchTree onHeap(SearchTree searchTree, Buffer buffer) {
+        long nodeCount = searchTree.nodeCount;
+        if (nodeCount > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException(
+                "FileMode.TREE_ON_HEAP is not supported for search trees with 2^30 or more "
+                    + "nodes. This tree has " + nodeCount + " nodes. Use FileMode.MEMORY_MAPPED "
+                    + "instead.");
+        }
+        var records = new int[(int) nodeCount * 2];
+        for (int node = 0; node < nodeCount; node++) {
+            records[node * 2] = (int) searchTree.readNode(buffer, node, 0);
+            records[node * 2 + 1] = (int) searchTree.readNode(buffer, node, 1);
+        }
+        return new OnHeap(nodeCount, records);
+    }
+
+    /*
+     * Returns the record at index (0 for the left record or 1 for the right
+     * record) of the node.
+     */
+    abstract long readNode(Buffer buffer, long nodeNumber, int index);
+
+    /*
+     * Follows the bits of the address from startBit up to bitCount, starting
+     * at startNode, which must be the record reached after following the
+     * first startBit bits. It stops early if a record that is not a node is
+     * reached. The address is given as two big-endian 64-bit words, with IPv4
+     * addresses in the top 32 bits of high. The resulting record and the
+     * number of bits followed are packed into the returned long. Use
+     * recordOf and prefixLengthOf to unpack them.
+     *
+     * This is implemented in each subclass, rather than once here, so that
+     * readNode is always a direct call that the JIT can inline, even when
+     * databases with different record sizes are used in the same process.
+     */
+    abstract long traverse(
+        Buffer buffer,
+        long high,
+        long low,
+        long startNode,
+        int startBit,
+        int bitCount
+    );
+
+    static long recordOf(long traverseResult) {
+        return traverseResult >>> 8;
+    }
+
+    static int prefixLengthOf(long traverseResult) {
+        return (int) (traverseResult & 0xFF);
+    }
+
+    // The record is at most 32 bits and the prefix length at most 128, so
+    // both fit in a single long. This avoids allocating on every lookup.
+    static long pack(long record, int prefixLength) {
+        return (record << 8) | prefixLength;
+    }
+
+    private static int bit(long high, long low, int i) {
+        var word = i < 64 ? high : low;
+        return (int) (word >>> (63 - (i & 63))) & 1;
+    }
+
+    /*
+     * The default walk. The specialized walks have a lower CPU cost per
+     * level when the tree is in the CPU cache, but the 24-bit walk was 10 to
+     * 20% slower than this one when most levels miss the cache, so they are
+     * opt-in.
+     */
+    static final class Generic extends SearchTree {
+        private final int recordSize;
+        private final int nodeByteSize;
+
+        private Generic(int recordSize, long nodeCount) {
+            super(nodeCount);
+            this.recordSize = recordSize;
+            this.nodeByteSize = recordSize / 4;
+        }
+
+        @Override
+        long readNode(Buffer buffer, long nodeNumber, int index) {
+            // index is the index of the record within the node, which
+            // can either be 0 or 1.
+            var baseOffset = nodeNumber * this.nodeByteSize;
+            return switch (this.recordSize) {
+                // For a 24 bit record, each record is 3 bytes.
+                case 24 -> readBytes(buffer, baseOffset + index * 3L, 0, 3);
+                case 28 -> {
+                    int middle = buffer.getByte(baseOffset + 3);
+                    // We get the most significant bits from the appropriate
+                    // half of the byte based on the index.
+                    middle = index == 0 ? (0xF0 & middle) >>> 4 : 0x0F & middle;
+                    yield readBytes(buffer, baseOffset + index * 4L, middle, 3);
+                }
+                default -> readBytes(buffer, baseOffset + index * 4L, 0, 4);
+            };
+        }
+
+        private static long readBytes(Buffer buffer, long offset, long base, int size) {
+            long value = base;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | (buffer.getByte(offset + i) & 0xFF);
+            }
+            return value;
+        }
+
+        @Override
+        long traverse(
+            Buffer buffer,
+            long high,
+            long low,
+            long startNode,
+            int startBit,
+            int bitCount
+        ) {
+            long record = startNode;
+            int i = startBit;
+            for (; i < bitCount && record < this.nodeCount; i++) {
+                record = this.readNode(buffer, record, bit(high, low, i));
+            }
+            return pack(record, i);
+        }
+    }
+
+    static final class Record24 extends SearchTree {
+        private Record24(long nodeCount) {
+            super(nodeCount);
+        }
+
+        @Override
+        long readNode(Buffer buffer, long nodeNumber, int index) {
+            // Each node is 6 bytes, the left record followed by the right.
+            return buffer.getUnsigned24(nodeNumber * 6 + index * 3L);
+        }
+
+        @Override
+        long traverse(
+            Buffer buffer,
+            long high,
+            long low,
+            long startNode,
+            int startBit,
+            int bitCount
+        ) {
+            long record = startNode;
+            int i = startBit;
+            for (; i < bitCount && record < this.nodeCount; i++) {
+                record = this.readNode(buffer, record, bit(high, low, i));
+            }
+            return pack(record, i);
+        }
+    }
+
+    static final class Record28 extends SearchTree {
+        private Record28(long nodeCount) {
+            super(nodeCount);
+        }
+
+        @Override
+        long readNode(Buffer buffer, long nodeNumber, int index) {
+            // Each node is 7 bytes. The middle byte holds the most
+            // significant 4 bits of the left record in its high nibble and
+            // those of the right record in its low nibble.
+            var baseOffset = nodeNumber * 7;
+            if (index == 0) {
+                var word = buffer.getInt(baseOffset);
+                return (word >>> 8) | ((word & 0xF0L) << 20);
+            }
+            return buffer.getUnsigned32(baseOffset + 3) & 0x0FFFFFFFL;
+        }
+
+        @Override
+        long traverse(
+            Buffer buffer,
+            long high,
+            long low,
+            long startNode,
+            int startBit,
+            int bitCount
+        ) {
+            long record = startNode;
+            int i = startBit;
+            for (; i < bitCount && record < this.nodeCount; i++) {
+                record = this.readNode(buffer, record, bit(high, low, i));
+            }
+            return pack(record, i);
+        }
+    }
+
+    static final class Record32 extends SearchTree {
+        private Record32(long nodeCount) {
+            super(nodeCount);
+        }
+
+        @Override
+        long readNode(Buffer buffer, long nodeNumber, int index) {
+            return buffer.getUnsigned32(nodeNumber * 8 + index * 4L);
+        }
+
+        @Override
+        long traverse(
+            Buffer buffer,
+            long high,
+            long low,
+            long startNode,
+            int startBit,
+            int bitCount
+        ) {
+            long record = startNode;
+            int i = startBit;
+            for (; i < bitCount && record < this.nodeCount; i++) {
+                record = this.readNode(buffer, record, bit(high, low, i));
+            }
+            return pack(record, i);
+        }
+    }
+
+    static final class OnHeap extends SearchTree {
+        // Records are unsigned 32-bit values stored as ints.
+        private final int[] records;
+
+        private OnHeap(long nodeCount, int[] records) {
+            super(nodeCount);
+            this.records = records;
+        }
+
+        // The buffer is not used as the records are already on the heap.
+        @Override
+        long readNode(Buffer buffer, long nodeNumber, int index) {
+            return this.records[(int) nodeNumber * 2 + index] & 0xFFFFFFFFL;
+        }
+
+        @Override
+        long traverse(
+            Buffer buffer,
+            long high,
+            long low,
+            long startNode,
+            int startBit,
+            int bitCount
+        ) {
+            long record = startNode;
+            int i = startBit;
+            for (; i < bitCount && record < this.nodeCount; i++) {
+                record = this.readNode(buffer, record, bit(high, low, i));
+            }
+            return pack(record, i);
+        }
+    }
+}
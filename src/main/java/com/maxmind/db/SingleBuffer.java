@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
 
 /**
  * A {@link Buffer} implementation backed by a single {@link ByteBuffer}.
@@ -38,72 +36,41 @@ final class SingleBuffer implements Buffer {
 
     /** {@inheritDoc} */
     @Override
-    public long position() {
-        return buffer.position();
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public SingleBuffer position(long newPosition) {
-        buffer.position((int) newPosition);
-        return this;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public long limit() {
-        return buffer.limit();
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public SingleBuffer limit(long newLimit) {
-        buffer.limit((int) newLimit);
-        return this;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public byte get() {
-        return buffer.get();
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public SingleBuffer get(byte[] dst) {
-        buffer.get(dst);
-        return this;
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public byte get(long index) {
+    public byte getByte(long index) {
         return buffer.get((int) index);
     }
 
     /** {@inheritDoc} */
     @Override
-    public double getDouble() {
-        return buffer.getDouble();
+    public int getInt(long index) {
+        return buffer.getInt((int) index);
     }
 
     /** {@inheritDoc} */
     @Override
-    public float getFloat() {
-        return buffer.getFloat();
+    public long getLong(long index) {
+        return buffer.getLong((int) index);
     }
 
     /** {@inheritDoc} */
     @Override
-    public SingleBuffer duplicate() {
-        return new SingleBuffer(this.buffer.duplicate());
+    public long getUnsigned(long index, int size) {
+        var i = (int) index;
+        if (i >= 0 && i <= buffer.capacity() - 8) {
+            return size == 0 ? 0 : buffer.getLong(i) >>> (64 - size * 8);
+        }
+        // Within 8 bytes of the end, read only the bytes asked for.
+        var value = 0L;
+        for (int k = 0; k < size; k++) {
+            value = (value << 8) | (buffer.get(i + k) & 0xFF);
+        }
+        return value;
     }
 
     /** {@inheritDoc} */
     @Override
-    public String decode(CharsetDecoder decoder)
-        throws CharacterCodingException {
-        return decoder.decode(buffer).toString();
+    public void getBytes(long index, byte[] dst) {
+        buffer.get((int) index, dst);
     }
 
     /**
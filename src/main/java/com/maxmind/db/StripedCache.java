@@ -0,0 +1,436 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A bounded cache split into independently locked shards. Concurrent requests
+ * for a key that is not yet cached are coalesced: one thread decodes the
+ * value while the others wait for it, rather than each decoding the same
+ * value. This avoids a burst of duplicate decoding when many threads start
+ * looking up addresses at once, e.g., just after the database is opened.
+ *
+ * <p>Hits do not lock; the lock of a shard is only taken when loading a value
+ * into it. Each shard evicts using the CLOCK algorithm, an approximation of
+ * least recently used eviction that does not reorder entries on each hit.
+ *
+ * <p>Each shard keeps counters of its hits, misses, loads, and lock
+ * contention, which are available from {@link #shardStats()}.
+ */
+public final class StripedCache implements NodeCache {
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_SHARD_COUNT = 16;
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    // The value each thread is waiting for another thread to load.
+    private final ConcurrentHashMap<Thread, Loading> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * A snapshot of the counters of a shard.
+     *
+     * @param hitCount           the number of lookups that found a cached
+     *                           value
+     * @param missCount          the number of lookups that did not find a
+     *                           cached value. This includes lookups that
+     *                           waited for another thread to load it.
+     * @param coalescedCount     the number of misses that waited for another
+     *                           thread's load rather than loading the value
+     * @param loadSuccessCount   the number of values loaded
+     * @param loadFailureCount   the number of loads that threw an exception
+     * @param totalLoadTimeNanos the total time spent loading values, in
+     *                           nanoseconds
+     * @param contentionCount    the number of times a thread had to wait for
+     *                           the shard's lock
+     * @param evictionCount      the number of entries evicted
+     */
+    public record ShardStats(
+        long hitCount,
+        long missCount,
+        long coalescedCount,
+        long loadSuccessCount,
+        long loadFailureCount,
+        long totalLoadTimeNanos,
+        long contentionCount,
+        long evictionCount
+    ) {
+    }
+
+    /**
+     * Creates a new cache holding up to 4096 entries in 16 shards.
+     */
+    public StripedCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new cache holding up to the specified number of entries in 16
+     * shards.
+     *
+     * @param capacity the maximum number of entries in the cache
+     */
+    public StripedCache(int capacity) {
+        this(capacity, DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Creates a new cache holding up to the specified number of entries. The
+     * capacity is divided evenly between the shards, rounding up.
+     *
+     * @param capacity   the maximum number of entries in the cache
+     * @param shardCount the number of shards. This is rounded up to a power
+     *                   of two.
+     * @throws IllegalArgumentException if the capacity or shard count is not
+     *                                  positive
+     */
+    public StripedCache(int capacity, int shardCount) {
+        this(capacity, shardCount, null);
+    }
+
+    /**
+     * Creates a new cache holding up to the specified number of entries that
+     * reports its statistics to a recorder, in addition to keeping the
+     * counters of each shard.
+     *
+     * @param capacity   the maximum number of entries in the cache
+     * @param shardCount the number of shards. This is rounded up to a power
+     *                   of two.
+     * @param stats      the recorder for the cache's statistics, or null to
+     *                   not record them
+     * @throws IllegalArgumentException if the capacity or shard count is not
+     *                                  positive
+     */
+    public StripedCache(int capacity, int shardCount, CacheStatsRecorder stats) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        if (shardCount <= 0 || shardCount > 1 << 16) {
+            throw new IllegalArgumentException(
+                "The shard count must be between 1 and 65536: " + shardCount);
+        }
+        int count = shardCount == 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[count];
+        int shardCapacity = Math.max(1, (capacity + count - 1) / count);
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(shardCapacity, stats);
+        }
+        this.shardMask = count - 1;
+    }
+
+    @Override
+    public DecodedValue get(CacheKey<?> key, Loader loader) throws IOException {
+        var shard = this.shards[spread(key.hashCode()) & this.shardMask];
+
+        // Hits don't take the lock.
+        if (shard.entries.get(key) instanceof Entry entry) {
+            return shard.hit(entry);
+        }
+
+        Loading loading;
+        boolean isLoader = false;
+        shard.lock();
+        try {
+            var entry = shard.entries.get(key);
+            if (entry instanceof Entry cached) {
+                return shard.hit(cached);
+            }
+            shard.missCount++;
+            if (shard.stats != null) {
+                shard.stats.recordMiss();
+            }
+            if (entry == null) {
+                loading = new Loading();
+                shard.entries.put(key, loading);
+                isLoader = true;
+            } else {
+                loading = (Loading) entry;
+                var current = Thread.currentThread();
+                this.waiting.put(current, loading);
+                if (this.isLoadedBy(loading, current)) {
+                    // The value refers back to itself, possibly through
+                    // values other threads are loading, which only happens
+                    // in a corrupt database. Waiting would never return.
+                    this.waiting.remove(current);
+                    loading = null;
+                } else {
+                    shard.coalescedCount++;
+                }
+            }
+        } finally {
+            shard.unlock();
+        }
+
+        if (isLoader) {
+            return load(shard, key, loader, loading);
+        }
+        if (loading == null) {
+            return loader.load(key);
+        }
+        try {
+            return loading.future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        } finally {
+            this.waiting.remove(Thread.currentThread());
+        }
+    }
+
+    /*
+     * Returns whether a value is being loaded by the thread, either directly
+     * or by a thread that is waiting, possibly through further waiting
+     * threads, for a value the thread is loading. Each thread registers what
+     * it waits for before checking, so of two threads about to wait for each
+     * other, at least one sees the cycle.
+     */
+    private boolean isLoadedBy(Loading loading, Thread thread) {
+        // The walk is bounded, as the threads ahead may be in a cycle of
+        // their own, which one of them will break.
+        int limit = this.waiting.size() + 1;
+        for (int i = 0; loading != null && i <= limit; i++) {
+            if (loading.thread == thread) {
+                return true;
+            }
+            loading = this.waiting.get(loading.thread);
+        }
+        return false;
+    }
+
+    /*
+     * Loads the value for a key this thread has marked as loading, then
+     * replaces the marker with the value and wakes any threads waiting for
+     * it. The shard is not locked during the load itself, so that other keys
+     * in the shard may be used meanwhile.
+     */
+    private static DecodedValue load(
+        Shard shard,
+        CacheKey<?> key,
+        Loader loader,
+        Loading loading
+    ) throws IOException {
+        long start = System.nanoTime();
+        DecodedValue value = null;
+        Throwable failure = null;
+        try {
+            value = loader.load(key);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            long loadTime = System.nanoTime() - start;
+            shard.lock();
+            try {
+                shard.totalLoadTimeNanos += loadTime;
+                if (shard.stats != null) {
+                    if (failure == null) {
+                        shard.stats.recordLoadSuccess(loadTime);
+                    } else {
+                        shard.stats.recordLoadFailure(loadTime);
+                    }
+                }
+                if (failure == null) {
+                    shard.loadSuccessCount++;
+                    shard.entries.put(key, new Entry(value));
+                    shard.clock.add(key);
+                    shard.evict();
+                } else {
+                    shard.loadFailureCount++;
+                    shard.entries.remove(key, loading);
+                }
+            } finally {
+                shard.unlock();
+            }
+            if (failure == null) {
+                loading.future.complete(value);
+            } else {
+                loading.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<CacheKey<?>, DecodedValue> action) {
+        for (var shard : this.shards) {
+            shard.entries.forEach((key, entry) -> {
+                if (entry instanceof Entry cached) {
+                    action.accept(key, cached.value);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void putIfAbsent(CacheKey<?> key, DecodedValue value) {
+        var shard = this.shards[spread(key.hashCode()) & this.shardMask];
+        shard.lock();
+        try {
+            // A value being loaded is left to its loader.
+            if (shard.entries.putIfAbsent(key, new Entry(value)) == null) {
+                shard.clock.add(key);
+                shard.evict();
+            }
+        } finally {
+            shard.unlock();
+        }
+    }
+
+    /**
+     * @return a snapshot of the counters of each shard.
+     */
+    public List<ShardStats> shardStats() {
+        var stats = new ArrayList<ShardStats>(this.shards.length);
+        for (var shard : this.shards) {
+            shard.lock();
+            try {
+                stats.add(new ShardStats(
+                    shard.hitCount.sum(),
+                    shard.missCount,
+                    shard.coalescedCount,
+                    shard.loadSuccessCount,
+                    shard.loadFailureCount,
+                    shard.totalLoadTimeNanos,
+                    shard.contentionCount,
+                    shard.evictionCount
+                ));
+            } finally {
+                shard.unlock();
+            }
+        }
+        return stats;
+    }
+
+    /*
+     * Returns the number of values in the cache, not including values being
+     * loaded.
+     */
+    int size() {
+        int size = 0;
+        for (var shard : this.shards) {
+            shard.lock();
+            try {
+                size += shard.clock.size();
+            } finally {
+                shard.unlock();
+            }
+        }
+        return size;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * A cached value. The referenced flag is set on each hit and cleared as
+     * the eviction clock passes over the entry, giving it a second chance.
+     */
+    private static final class Entry {
+        final DecodedValue value;
+        volatile boolean referenced;
+
+        Entry(DecodedValue value) {
+            this.value = value;
+        }
+    }
+
+    /*
+     * A value being loaded by a thread. Other threads requesting the same key
+     * wait on the future.
+     */
+    private static final class Loading {
+        final Thread thread = Thread.currentThread();
+        final CompletableFuture<DecodedValue> future = new CompletableFuture<>();
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        final CacheStatsRecorder stats;
+
+        // The values are either an Entry or a Loading. The map is read
+        // without the lock but only modified while holding it.
+        final ConcurrentHashMap<CacheKey<?>, Object> entries = new ConcurrentHashMap<>();
+        final LongAdder hitCount = new LongAdder();
+
+        // The following are guarded by lock. The clock holds the keys of the
+        // cached values in the order they were added.
+        final ArrayDeque<CacheKey<?>> clock = new ArrayDeque<>();
+        long missCount;
+        long coalescedCount;
+        long loadSuccessCount;
+        long loadFailureCount;
+        long totalLoadTimeNanos;
+        long contentionCount;
+        long evictionCount;
+
+        Shard(int capacity, CacheStatsRecorder stats) {
+            this.capacity = capacity;
+            this.stats = stats;
+        }
+
+        DecodedValue hit(Entry entry) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            this.hitCount.increment();
+            if (this.stats != null) {
+                this.stats.recordHit();
+            }
+            return entry.value;
+        }
+
+        void lock() {
+            if (!this.lock.tryLock()) {
+                this.lock.lock();
+                this.contentionCount++;
+            }
+        }
+
+        void unlock() {
+            this.lock.unlock();
+        }
+
+        /*
+         * Evicts values until the shard is within its capacity. The oldest
+         * value is evicted unless it has been used since the clock last
+         * passed it, in which case it moves to the back of the clock.
+         */
+        void evict() {
+            while (this.clock.size() > this.capacity) {
+                var key = this.clock.poll();
+                var entry = (Entry) this.entries.get(key);
+                if (entry.referenced) {
+                    entry.referenced = false;
+                    this.clock.add(key);
+                } else {
+                    this.entries.remove(key);
+                    this.evictionCount++;
+                    if (this.stats != null) {
+                        this.stats.recordEviction();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A bounded cache using the W-TinyLFU admission and eviction policy. Unlike
+ * {@link CHMCache}, which stops accepting entries once it is full, this cache
+ * keeps the entries that are used most often and evicts the others.
+ *
+ * <p>New entries are added to a small LRU window, which holds 1% of the
+ * cache's capacity. Entries leaving the window are only admitted to the main
+ * space if they have been used more often than the entry that would be
+ * evicted for them. Use counts are kept approximately in a count-min sketch
+ * that is periodically halved, so that the counts of entries that are no
+ * longer used decay. The main space is a segmented LRU, where entries used
+ * again while on probation are moved to a protected segment that holds 80% of
+ * it.
+ *
+ * <p>By default, the cache is bounded by the number of entries. With a
+ * {@link Weigher}, it is instead bounded by the total weight of the entries,
+ * e.g., an estimate of their retained size in bytes using
+ * {@link #estimatedBytesWeigher()}.
+ *
+ * <p>Lookups of cached values do not block. The use of an entry is recorded
+ * in a buffer that is applied to the policy later, and some uses may be
+ * dropped when the cache is under heavy contention.
+ */
+public final class TinyLfuCache implements NodeCache {
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte REMOVED = 3;
+
+    /**
+     * Calculates the weight of a cache entry. The cache's capacity is then
+     * the maximum total weight of its entries rather than the maximum number
+     * of entries.
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        /**
+         * @param key   the key of the entry
+         * @param value the decoded value of the entry
+         * @return the weight of the entry. This must not be negative.
+         */
+        int weigh(CacheKey<?> key, Object value);
+    }
+
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private final Weigher weigher;
+    private final CacheStatsRecorder stats;
+
+    private final ConcurrentHashMap<CacheKey<?>, Node> data;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // The following are guarded by evictionLock.
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+    private final FrequencySketch sketch;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final AtomicReferenceArray<Node> readBuffer =
+        new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readBufferWriteCount = new AtomicLong();
+    private volatile long readBufferReadCount;
+
+    /**
+     * Creates a new cache holding up to 4096 entries.
+     */
+    public TinyLfuCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new cache holding up to the specified number of entries.
+     *
+     * @param capacity the maximum number of entries in the cache
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TinyLfuCache(long capacity) {
+        this(capacity, (key, value) -> 1, null, capacity);
+    }
+
+    /**
+     * Creates a new cache bounded by the total weight of its entries.
+     *
+     * @param capacity the maximum total weight of the entries in the cache
+     * @param weigher  the weigher used to calculate the weight of each entry
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TinyLfuCache(long capacity, Weigher weigher) {
+        this(capacity, weigher, null);
+    }
+
+    /**
+     * Creates a new cache bounded by the total weight of its entries that
+     * reports its statistics. To bound the cache by the number of entries,
+     * use a weigher returning 1 for each entry.
+     *
+     * @param capacity the maximum total weight of the entries in the cache
+     * @param weigher  the weigher used to calculate the weight of each entry
+     * @param stats    the recorder for the cache's statistics, or null to not
+     *                 record them
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TinyLfuCache(long capacity, Weigher weigher, CacheStatsRecorder stats) {
+        // The number of entries is not known up front, so the sketch starts
+        // small and grows with the cache.
+        this(capacity, weigher, stats, DEFAULT_CAPACITY);
+    }
+
+    private TinyLfuCache(
+        long capacity,
+        Weigher weigher,
+        CacheStatsRecorder stats,
+        long expectedEntries
+    ) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        if (weigher == null) {
+            throw new NullPointerException("Weigher cannot be null");
+        }
+        this.windowMaximum = Math.max(1, capacity / 100);
+        this.mainMaximum = capacity - this.windowMaximum;
+        this.protectedMaximum = this.mainMaximum * 80 / 100;
+        this.weigher = weigher;
+        this.stats = stats;
+        this.data = new ConcurrentHashMap<>();
+        this.sketch = new FrequencySketch();
+        this.sketch.ensureCapacity(Math.min(capacity, expectedEntries));
+    }
+
+    /**
+     * Returns a weigher estimating the number of bytes retained by a decoded
+     * value. It accounts for the maps, lists, strings, numbers, and arrays
+     * returned when decoding to {@link Object} or {@link Map}. Other objects
+     * are given a fixed weight of 64 bytes per object, not including any
+     * values they reference. Values shared through pointers in the database
+     * are counted for each entry that includes them.
+     *
+     * @return the weigher
+     */
+    public static Weigher estimatedBytesWeigher() {
+        return (key, value) -> (int) Math.min(Integer.MAX_VALUE, estimateBytes(value));
+    }
+
+    @Override
+    public DecodedValue get(CacheKey<?> key, Loader loader) throws IOException {
+        var node = this.data.get(key);
+        if (node != null) {
+            this.afterRead(node);
+            if (this.stats != null) {
+                this.stats.recordHit();
+            }
+            return node.value;
+        }
+
+        var value = this.load(key, loader);
+        int weight = this.weigh(key, value);
+        this.evictionLock.lock();
+        try {
+            return this.insert(key, value, weight);
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<CacheKey<?>, DecodedValue> action) {
+        this.data.forEach((key, node) -> action.accept(key, node.value));
+    }
+
+    @Override
+    public void putIfAbsent(CacheKey<?> key, DecodedValue value) {
+        int weight = this.weigh(key, value);
+        this.evictionLock.lock();
+        try {
+            this.insert(key, value, weight);
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    private int weigh(CacheKey<?> key, DecodedValue value) {
+        int weight = this.weigher.weigh(key, value.value());
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight must not be negative: " + weight);
+        }
+        return weight;
+    }
+
+    /*
+     * Adds a value to the window, unless the key is already present, and
+     * returns the cached value. Must be called with evictionLock held.
+     */
+    private DecodedValue insert(CacheKey<?> key, DecodedValue value, int weight) {
+        var existing = this.data.get(key);
+        if (existing != null) {
+            // Another thread loaded the value first.
+            return existing.value;
+        }
+        this.sketch.increment(spread(key.hashCode()));
+        // An entry that fits in neither the window nor the main space would
+        // only be evicted again when it leaves the window.
+        if (weight > this.windowMaximum && weight > this.mainMaximum) {
+            if (this.stats != null) {
+                this.stats.recordEviction();
+            }
+            return value;
+        }
+        var node = new Node(key, value, weight);
+        this.data.put(key, node);
+        this.sketch.ensureCapacity(this.data.size());
+        this.window.addLast(node);
+        this.windowWeight += weight;
+        this.drainReadBuffer();
+        this.evict();
+        return value;
+    }
+
+    private DecodedValue load(CacheKey<?> key, Loader loader) throws IOException {
+        if (this.stats == null) {
+            return loader.load(key);
+        }
+        this.stats.recordMiss();
+        long start = System.nanoTime();
+        DecodedValue value;
+        try {
+            value = loader.load(key);
+        } catch (IOException | RuntimeException e) {
+            this.stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        this.stats.recordLoadSuccess(System.nanoTime() - start);
+        return value;
+    }
+
+    /*
+     * Returns the number of entries in the cache.
+     */
+    int size() {
+        return this.data.size();
+    }
+
+    /*
+     * Returns the total weight of the entries in the cache.
+     */
+    long weightedSize() {
+        this.evictionLock.lock();
+        try {
+            return this.windowWeight + this.probationWeight + this.protectedWeight;
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    /*
+     * Records the use of a cached entry. This is lossy: if the buffer is
+     * full, the use is dropped rather than waiting for it to be drained.
+     */
+    private void afterRead(Node node) {
+        long writeCount = this.readBufferWriteCount.get();
+        long pending = writeCount - this.readBufferReadCount;
+        if (pending < READ_BUFFER_SIZE
+            && this.readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+            this.readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), node);
+            pending++;
+        }
+        if (pending >= READ_BUFFER_DRAIN_THRESHOLD && this.evictionLock.tryLock()) {
+            try {
+                this.drainReadBuffer();
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    // Guarded by evictionLock.
+    private void drainReadBuffer() {
+        long readCount = this.readBufferReadCount;
+        long writeCount = this.readBufferWriteCount.get();
+        for (; readCount < writeCount; readCount++) {
+            int index = (int) (readCount & READ_BUFFER_MASK);
+            var node = this.readBuffer.get(index);
+            if (node == null) {
+                // The slot was claimed but the node is not yet published.
+                break;
+            }
+            this.readBuffer.lazySet(index, null);
+            this.onAccess(node);
+        }
+        this.readBufferReadCount = readCount;
+    }
+
+    // Guarded by evictionLock.
+    private void onAccess(Node node) {
+        if (node.queue == REMOVED) {
+            return;
+        }
+        this.sketch.increment(spread(node.key.hashCode()));
+        switch (node.queue) {
+            case WINDOW -> this.window.moveToBack(node);
+            case PROBATION -> {
+                this.probation.remove(node);
+                this.probationWeight -= node.weight;
+                node.queue = PROTECTED;
+                this.protectedDeque.addLast(node);
+                this.protectedWeight += node.weight;
+                while (this.protectedWeight > this.protectedMaximum) {
+                    var demoted = this.protectedDeque.pollFirst();
+                    this.protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    this.probation.addLast(demoted);
+                    this.probationWeight += demoted.weight;
+                }
+            }
+            default -> this.protectedDeque.moveToBack(node);
+        }
+    }
+
+    // Guarded by evictionLock.
+    private void evict() {
+        while (this.windowWeight > this.windowMaximum) {
+            var candidate = this.window.pollFirst();
+            this.windowWeight -= candidate.weight;
+            this.admit(candidate);
+        }
+    }
+
+    /*
+     * Moves a candidate leaving the window to the main space if it is used
+     * more often than the entries it would replace. Otherwise, the candidate
+     * is evicted. Guarded by evictionLock.
+     */
+    private void admit(Node candidate) {
+        if (candidate.weight > this.mainMaximum) {
+            // No number of victims would make room for it.
+            this.remove(candidate);
+            return;
+        }
+        int candidateFrequency = this.sketch.frequency(spread(candidate.key.hashCode()));
+        while (this.probationWeight + this.protectedWeight + candidate.weight
+            > this.mainMaximum) {
+            var victim = this.probation.peekFirst();
+            if (victim == null) {
+                victim = this.protectedDeque.peekFirst();
+            }
+            if (victim == null
+                || candidateFrequency <= this.sketch.frequency(spread(victim.key.hashCode()))) {
+                this.remove(candidate);
+                return;
+            }
+            this.remove(victim);
+        }
+        candidate.queue = PROBATION;
+        this.probation.addLast(candidate);
+        this.probationWeight += candidate.weight;
+    }
+
+    // Guarded by evictionLock.
+    private void remove(Node node) {
+        this.data.remove(node.key, node);
+        if (this.stats != null) {
+            this.stats.recordEviction();
+        }
+        switch (node.queue) {
+            case PROBATION -> {
+                this.probation.remove(node);
+                this.probationWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                this.protectedDeque.remove(node);
+                this.protectedWeight -= node.weight;
+            }
+            default -> {
+                // Window entries have already been unlinked by evict().
+            }
+        }
+        node.queue = REMOVED;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long estimateBytes(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return 40 + s.length();
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 16;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 24;
+        }
+        if (value instanceof BigInteger b) {
+            return 40 + 16 + b.bitLength() / 8;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 48 + 16L * map.size();
+            for (var entry : map.entrySet()) {
+                size += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List<?> list) {
+            long size = 40 + 4L * list.size();
+            for (var element : list) {
+                size += estimateBytes(element);
+            }
+            return size;
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            long size = 16 + 8L * length;
+            if (!value.getClass().getComponentType().isPrimitive()) {
+                for (int i = 0; i < length; i++) {
+                    size += estimateBytes(Array.get(value, i));
+                }
+            }
+            return size;
+        }
+        return 64;
+    }
+
+    private static final class Node {
+        final CacheKey<?> key;
+        final DecodedValue value;
+        final int weight;
+
+        // The following are guarded by evictionLock.
+        byte queue = WINDOW;
+        Node prev;
+        Node next;
+
+        Node(CacheKey<?> key, DecodedValue value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /*
+     * A doubly linked list of nodes, from the least recently used at the
+     * front to the most recently used at the back.
+     */
+    private static final class AccessOrderDeque {
+        private Node first;
+        private Node last;
+
+        Node peekFirst() {
+            return this.first;
+        }
+
+        Node pollFirst() {
+            var node = this.first;
+            if (node != null) {
+                this.remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node node) {
+            node.prev = this.last;
+            node.next = null;
+            if (this.last == null) {
+                this.first = node;
+            } else {
+                this.last.next = node;
+            }
+            this.last = node;
+        }
+
+        void moveToBack(Node node) {
+            if (node != this.last) {
+                this.remove(node);
+                this.addLast(node);
+            }
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                this.first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                this.last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    /*
+     * A count-min sketch of 4-bit counters, with four counters per item.
+     * Each long holds 16 counters, in four groups of four. Each hash function
+     * uses one group, so all of an item's counters are in a single long. When
+     * the number of increments reaches ten times the number of counters per
+     * hash function, all counters are halved so that the counts of items that
+     * are no longer used decay.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L,
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int MAXIMUM_TABLE_SIZE = 1 << 22;
+
+        private long[] table = new long[0];
+        private int sampleSize;
+        private int size;
+
+        /*
+         * Grows the table when the cache holds more entries than it was sized
+         * for. The existing counts are discarded.
+         */
+        void ensureCapacity(long expectedEntries) {
+            int length = (int) Math.min(
+                MAXIMUM_TABLE_SIZE,
+                Long.highestOneBit(Math.max(16, expectedEntries - 1)) << 1
+            );
+            if (length <= this.table.length) {
+                return;
+            }
+            this.table = new long[length];
+            this.sampleSize = 10 * length;
+            this.size = 0;
+        }
+
+        int frequency(int hash) {
+            int index = this.indexOf(hash);
+            long word = this.table[index];
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int count = (int) ((word >>> this.offsetOf(hash, i)) & 0xF);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int index = this.indexOf(hash);
+            long word = this.table[index];
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int offset = this.offsetOf(hash, i);
+                if (((word >>> offset) & 0xF) != 0xF) {
+                    word += 1L << offset;
+                    added = true;
+                }
+            }
+            this.table[index] = word;
+            if (added && ++this.size >= this.sampleSize) {
+                this.reset();
+            }
+        }
+
+        private int indexOf(int hash) {
+            long h = (hash + SEEDS[0]) * SEEDS[1];
+            h ^= h >>> 32;
+            return (int) h & (this.table.length - 1);
+        }
+
+        // The bit offset of the counter for hash function i within the long.
+        private int offsetOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[(i + 1) & 3];
+            int counter = (int) (h >>> 62);
+            return ((i << 2) + counter) << 2;
+        }
+
+        private void reset() {
+            for (int i = 0; i < this.table.length; i++) {
+                this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+            }
+            this.size /= 2;
+        }
+    }
+}
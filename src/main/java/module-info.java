@@ -1,3 +1,6 @@
 module com.maxmind.db {
+    // Only for the JFR events, which are not created without it.
+    requires static jdk.jfr;
+
     exports com.maxmind.db;
 }
@@ -0,0 +1,82 @@
+package com.maxmind.db;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A database file memory-mapped for {@link BufferHolder}.
+ *
+ * <p>This is the Java 22 version of this class. The whole file is mapped as
+ * a single {@link java.lang.foreign.MemorySegment}, which is indexed by a
+ * long, so lookups take the same code path for files of any size and
+ * <code>chunkSize</code> is not used.
+ */
+final class MappedFile {
+    private final MemorySegment segment;
+    private final Buffer buffer;
+    private final Arena arena;
+
+    private MappedFile(MemorySegment segment, Arena arena) {
+        this.segment = segment;
+        this.buffer = new SegmentBuffer(segment);
+        this.arena = arena;
+    }
+
+    /**
+     * Maps the whole of the given {@link FileChannel}.
+     *
+     * @param channel    the file channel to map
+     * @param chunkSize  not used on this version of Java
+     * @param unmappable whether {@link #unmap()} will be called. If so, the
+     *                   file is mapped in a shared {@link Arena} that it
+     *                   closes. Otherwise, the arena is automatic and the
+     *                   mapping is released once it is no longer reachable.
+     * @return the mapped file
+     * @throws IOException if an I/O error occurs
+     */
+    static MappedFile map(FileChannel channel, int chunkSize, boolean unmappable)
+        throws IOException {
+        var arena = unmappable ? Arena.ofShared() : Arena.ofAuto();
+        try {
+            var segment = channel.map(MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new MappedFile(segment, arena);
+        } catch (IOException | RuntimeException e) {
+            if (unmappable) {
+                arena.close();
+            }
+            throw e;
+        }
+    }
+
+    Buffer buffer() {
+        return this.buffer;
+    }
+
+    /*
+     * Reads the pages of the given range of the file into memory. See
+     * MemorySegment.load().
+     */
+    void load(long offset, long length) {
+        this.segment.asSlice(offset, length).load();
+    }
+
+    /*
+     * Returns whether the pages of the given range of the file are likely
+     * to be in memory. See MemorySegment.isLoaded().
+     */
+    boolean isLoaded(long offset, long length) {
+        return this.segment.asSlice(offset, length).isLoaded();
+    }
+
+    /*
+     * Unmaps the file by closing its arena. A read of the buffer afterwards
+     * throws an IllegalStateException rather than crashing the JVM, but
+     * BufferHolder's reference count keeps that from happening.
+     */
+    void unmap() {
+        this.arena.close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.maxmind.db;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link Buffer} implementation backed by a single {@link MemorySegment}.
+ *
+ * <p>Unlike a {@link java.nio.ByteBuffer}, a segment is indexed by a long,
+ * so a file of any size is a single segment and no index is split into a
+ * chunk and an offset.
+ *
+ * <p>The segment is read-only to prevent accidental modification of shared
+ * data.
+ */
+final class SegmentBuffer implements Buffer {
+    private static final ValueLayout.OfInt INT =
+        ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG =
+        ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final MemorySegment segment;
+    private final long capacity;
+
+    /**
+     * Creates a new {@code SegmentBuffer} wrapping the given
+     * {@link MemorySegment}. The segment is made read-only.
+     *
+     * @param segment the underlying segment
+     */
+    SegmentBuffer(MemorySegment segment) {
+        this.segment = segment.asReadOnly();
+        this.capacity = segment.byteSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte getByte(long index) {
+        return segment.get(ValueLayout.JAVA_BYTE, index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(long index) {
+        return segment.get(INT, index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLong(long index) {
+        return segment.get(LONG, index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getUnsigned(long index, int size) {
+        if (index >= 0 && index <= capacity - 8) {
+            return size == 0 ? 0 : segment.get(LONG, index) >>> (64 - size * 8);
+        }
+        // Within 8 bytes of the end, read only the bytes asked for.
+        var value = 0L;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (segment.get(ValueLayout.JAVA_BYTE, index + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void getBytes(long index, byte[] dst) {
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, index, dst, 0, dst.length);
+    }
+}
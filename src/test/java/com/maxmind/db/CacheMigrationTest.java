@@ -0,0 +1,137 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class CacheMigrationTest {
+    @TempDir
+    Path tempDir;
+
+    static List<Supplier<NodeCache>> caches() {
+        return List.of(
+            () -> new CHMCache(100_000),
+            () -> new TinyLfuCache(100_000),
+            () -> new StripedCache(100_000)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("caches")
+    public void testMigratesUnchangedValues(Supplier<NodeCache> caches) throws IOException {
+        // The new database has a larger search tree, so its data section
+        // starts later, and has more records, which are appended to the
+        // data section.
+        var oldDatabase = SyntheticDatabase.builder().ipVersion(4).build();
+        var newDatabase = SyntheticDatabase.builder()
+            .ipVersion(4)
+            .nodeCount(oldDatabase.nodeCount() + 1_000)
+            .recordCount(oldDatabase.recordCount() + 200)
+            .build();
+
+        var oldCache = caches.get();
+        var oldRecordCache = caches.get();
+        var newRecordStats = new CacheStats();
+        var newRecordCache = new CHMCache(100_000, newRecordStats);
+        try (var oldReader = this.open(oldDatabase, "old.mmdb", oldCache, oldRecordCache);
+             var newReader = this.open(newDatabase, "new.mmdb", caches.get(), newRecordCache)) {
+            lookUp(oldReader, oldDatabase);
+            long cached = size(oldCache) + size(oldRecordCache);
+            assertTrue(size(oldRecordCache) > 0);
+
+            // Every value of the old database is unchanged in the new one.
+            assertEquals(cached, newReader.migrateCacheFrom(oldReader));
+            assertEquals(size(oldRecordCache), size(newRecordCache));
+            lookUp(newReader, newDatabase);
+            assertTrue(newRecordStats.hitCount() > 0);
+        }
+    }
+
+    @Test
+    public void testSkipsChangedValues() throws IOException {
+        var oldDatabase = SyntheticDatabase.builder().ipVersion(4).seed(1).build();
+        var newDatabase = SyntheticDatabase.builder().ipVersion(4).seed(2).build();
+
+        var oldCache = new CHMCache(100_000);
+        var oldRecordCache = new CHMCache(100_000);
+        try (var oldReader = this.open(oldDatabase, "old.mmdb", oldCache, oldRecordCache);
+             var newReader = this.open(newDatabase, "new.mmdb",
+                 new CHMCache(100_000), new CHMCache(100_000))) {
+            lookUp(oldReader, oldDatabase);
+            long cached = size(oldCache) + size(oldRecordCache);
+
+            long migrated = newReader.migrateCacheFrom(oldReader);
+            assertTrue(migrated < cached, migrated + " of " + cached);
+            // The lookups see the new data rather than values carried over
+            // from the old database.
+            lookUp(newReader, newDatabase);
+        }
+    }
+
+    @Test
+    public void testSharedCache() throws IOException {
+        var database = SyntheticDatabase.builder().ipVersion(4).build();
+        var cache = new CHMCache();
+        try (var oldReader = this.open(database, "old.mmdb", cache, NoCache.getInstance());
+             var newReader = this.open(database, "new.mmdb", cache, NoCache.getInstance())) {
+            assertThrows(IllegalArgumentException.class,
+                () -> newReader.migrateCacheFrom(oldReader));
+        }
+    }
+
+    @Test
+    public void testClosedReader() throws IOException {
+        var database = SyntheticDatabase.builder().ipVersion(4).build();
+        try (var newReader = this.open(database, "new.mmdb",
+            new CHMCache(), new CHMCache())) {
+            var oldReader = this.open(database, "old.mmdb", new CHMCache(), new CHMCache());
+            oldReader.close();
+            assertThrows(ClosedDatabaseException.class,
+                () -> newReader.migrateCacheFrom(oldReader));
+        }
+    }
+
+    private Reader open(
+        SyntheticDatabase database,
+        String name,
+        NodeCache cache,
+        NodeCache recordCache
+    ) throws IOException {
+        var file = this.tempDir.resolve(name);
+        database.write(file);
+        return new Reader.Builder(file.toFile())
+            .withCache(cache)
+            .withRecordCache(recordCache)
+            .build();
+    }
+
+    private static void lookUp(Reader reader, SyntheticDatabase database)
+        throws IOException {
+        var random = new Random(0);
+        var address = new byte[4];
+        var result = new LookupResult<Map>();
+        for (int i = 0; i < 5_000; i++) {
+            random.nextBytes(address);
+            reader.lookup(address, Map.class, result);
+            var expected = database.expected(address);
+            assertEquals(database.record(expected.recordIndex()), result.data());
+        }
+    }
+
+    private static long size(NodeCache cache) {
+        var size = new long[1];
+        cache.forEach((key, value) -> size[0]++);
+        return size[0];
+    }
+}
@@ -1,6 +1,7 @@
 package com.maxmind.db;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -576,4 +577,173 @@ public class DecoderTest {
             "UINT128(2^128-1) should decode to BigInteger");
     }
 
+    // {"count": 7, "flag": true, "name": "Foo"}
+    private static final byte[] PRIMITIVES_MAP = {(byte) 0xe3,
+        /* count */
+        0x45, 0x63, 0x6f, 0x75, 0x6e, 0x74,
+        /* uint16 7 */
+        (byte) 0xa1, 0x07,
+        /* flag */
+        0x44, 0x66, 0x6c, 0x61, 0x67,
+        /* true */
+        0x01, 0x07,
+        /* name */
+        0x44, 0x6e, 0x61, 0x6d, 0x65,
+        /* Foo */
+        0x43, 0x46, 0x6f, 0x6f};
+
+    record Primitives(int count, boolean flag, Name name) {
+    }
+
+    record Name(String value) {
+        @MaxMindDbCreator
+        static Name of(String value) {
+            return new Name(value.toUpperCase());
+        }
+    }
+
+    record MissingPrimitive(int count, long missing) {
+    }
+
+    record ThrowingConstructor(int count) {
+        ThrowingConstructor {
+            throw new IllegalStateException("count " + count);
+        }
+    }
+
+    @Test
+    public void testDecodeIntoConstructorAndCreator() throws IOException {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(PRIMITIVES_MAP), 0);
+        // Decode twice, so the second decode uses the cached constructor.
+        for (int i = 0; i < 2; i++) {
+            assertEquals(
+                new Primitives(7, true, new Name("FOO")),
+                decoder.decode(0, Primitives.class));
+        }
+    }
+
+    @Test
+    public void testDecodeMissingPrimitive() {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(PRIMITIVES_MAP), 0);
+        var ex = assertThrows(DeserializationException.class,
+            () -> decoder.decode(0, MissingPrimitive.class));
+        assertThat(ex.getMessage(), containsString("null value for primitive long"));
+        assertThat(ex.getCause(), instanceOf(IllegalArgumentException.class));
+    }
+
+    @Test
+    public void testDecodeConstructorException() {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(PRIMITIVES_MAP), 0);
+        var ex = assertThrows(DeserializationException.class,
+            () -> decoder.decode(0, ThrowingConstructor.class));
+        assertThat(ex.getMessage(), containsString("Error creating object"));
+        assertThat(ex.getCause().getCause(), instanceOf(IllegalStateException.class));
+        assertEquals("count 7", ex.getCause().getCause().getMessage());
+    }
+
+    // Decoded through DecoderTest_Generated_MaxMindDbDecoder, which reads the
+    // label from the "name" key and has a creator method, so neither would
+    // work through reflection.
+    record Generated(int count, String label) {
+    }
+
+    @Test
+    public void testPrefersGeneratedDecoder() throws IOException {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(PRIMITIVES_MAP), 0);
+        assertEquals(new Generated(7, "Foo"), decoder.decode(0, Generated.class));
+
+        var string = new byte[] {0x43, 0x46, 0x6f, 0x6f};
+        var stringDecoder = new Decoder(new CHMCache(), SingleBuffer.wrap(string), 0);
+        assertEquals(new Generated(0, "Foo"), stringDecoder.decode(0, Generated.class));
+    }
+
+    // Decoded through DecoderTest_GeneratedMissingPrimitive_MaxMindDbDecoder.
+    // The null for the missing primitive does not match its parameter, so
+    // the constructor is found and invoked through reflection, which rejects
+    // it as it does without a generated decoder.
+    record GeneratedMissingPrimitive(int count, long missing) {
+    }
+
+    @Test
+    public void testGeneratedDecoderFallsBackToReflection() {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(PRIMITIVES_MAP), 0);
+        // The second decode uses the constructor found by the first.
+        for (int i = 0; i < 2; i++) {
+            var ex = assertThrows(DeserializationException.class,
+                () -> decoder.decode(0, GeneratedMissingPrimitive.class));
+            assertThat(ex.getMessage(), containsString("null value for primitive long"));
+            assertThat(ex.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    // Strings, then a map whose keys point to them:
+    // {"count": 7, "extra": 1, "name": "Foo"}
+    private static final byte[] POINTER_KEYS_MAP = {
+        /* 0: count */
+        0x45, 0x63, 0x6f, 0x75, 0x6e, 0x74,
+        /* 6: name */
+        0x44, 0x6e, 0x61, 0x6d, 0x65,
+        /* 11: extra */
+        0x45, 0x65, 0x78, 0x74, 0x72, 0x61,
+        /* 17: map */
+        (byte) 0xe3,
+        0x20, 0x00, (byte) 0xa1, 0x07,
+        0x20, 0x0b, (byte) 0xa1, 0x01,
+        0x20, 0x06, 0x43, 0x46, 0x6f, 0x6f};
+
+    record PointerKeys(int count, String name) {
+    }
+
+    @Test
+    public void testPointerKeysDecodedOnce() throws IOException {
+        var stats = new CacheStats();
+        var decoder = new Decoder(
+            new CHMCache(100, stats), SingleBuffer.wrap(POINTER_KEYS_MAP), 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new PointerKeys(7, "Foo"), decoder.decode(17, PointerKeys.class));
+        }
+        // Each key was decoded for the first map only, including the key
+        // that is not a parameter. The other maps' keys were matched by
+        // their pointers.
+        assertEquals(3, stats.missCount());
+        assertEquals(0, stats.hitCount());
+
+        // A map decoded into a Map needs the keys themselves.
+        var map = decoder.decode(17, Map.class);
+        assertEquals(Map.of("count", 7, "extra", 1, "name", "Foo"), map);
+    }
+
+    // {"nome": 1, "name": "Foo", "été": "x", "count": 7}
+    private static final byte[] INLINE_KEYS_MAP = {(byte) 0xe4,
+        /* nome */
+        0x44, 0x6e, 0x6f, 0x6d, 0x65,
+        /* uint16 1 */
+        (byte) 0xa1, 0x01,
+        /* name */
+        0x44, 0x6e, 0x61, 0x6d, 0x65,
+        /* Foo */
+        0x43, 0x46, 0x6f, 0x6f,
+        /* été */
+        0x45, (byte) 0xc3, (byte) 0xa9, 0x74, (byte) 0xc3, (byte) 0xa9,
+        /* x */
+        0x41, 0x78,
+        /* count */
+        0x45, 0x63, 0x6f, 0x75, 0x6e, 0x74,
+        /* uint16 7 */
+        (byte) 0xa1, 0x07};
+
+    record InlineKeys(
+        int count,
+        String name,
+        @MaxMindDbParameter(name = "été") String summer
+    ) {
+    }
+
+    @Test
+    public void testInlineKeysMatchedByBytes() throws IOException {
+        var decoder = new Decoder(new CHMCache(), SingleBuffer.wrap(INLINE_KEYS_MAP), 0);
+        // "nome" has the same length and first byte as "name", but is not a
+        // parameter, so it is skipped.
+        assertEquals(new InlineKeys(7, "Foo", "x"), decoder.decode(0, InlineKeys.class));
+    }
 }
@@ -0,0 +1,31 @@
+package com.maxmind.db;
+
+/**
+ * The decoder for {@link DecoderTest.GeneratedMissingPrimitive}, as the
+ * annotation processor would generate it for a class with a primitive
+ * parameter that has no default.
+ */
+public final class DecoderTest_GeneratedMissingPrimitive_MaxMindDbDecoder
+    implements GeneratedDecoder<DecoderTest.GeneratedMissingPrimitive> {
+    private static final java.util.List<GeneratedDecoder.Parameter> PARAMETERS =
+        java.util.List.of(
+            new GeneratedDecoder.Parameter("count", int.class, new Class<?>[] {}, null, null),
+            new GeneratedDecoder.Parameter("missing", long.class, new Class<?>[] {}, null, null)
+        );
+
+    @Override
+    public Class<DecoderTest.GeneratedMissingPrimitive> type() {
+        return DecoderTest.GeneratedMissingPrimitive.class;
+    }
+
+    @Override
+    public java.util.List<GeneratedDecoder.Parameter> parameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public DecoderTest.GeneratedMissingPrimitive newInstance(Object[] arguments) {
+        return new DecoderTest.GeneratedMissingPrimitive(
+            (int) arguments[0], (long) arguments[1]);
+    }
+}
@@ -0,0 +1,40 @@
+package com.maxmind.db;
+
+/**
+ * The decoder for {@link DecoderTest.Generated}, as the annotation processor
+ * would generate it for a class with a <code>name</code> parameter and a
+ * creator method.
+ */
+public final class DecoderTest_Generated_MaxMindDbDecoder
+    implements GeneratedDecoder<DecoderTest.Generated> {
+    private static final java.util.List<GeneratedDecoder.Parameter> PARAMETERS =
+        java.util.List.of(
+            new GeneratedDecoder.Parameter("count", int.class, new Class<?>[] {}, null, null),
+            new GeneratedDecoder.Parameter("name", String.class, new Class<?>[] {}, null, null)
+        );
+
+    @Override
+    public Class<DecoderTest.Generated> type() {
+        return DecoderTest.Generated.class;
+    }
+
+    @Override
+    public java.util.List<GeneratedDecoder.Parameter> parameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public DecoderTest.Generated newInstance(Object[] arguments) {
+        return new DecoderTest.Generated((int) arguments[0], (String) arguments[1]);
+    }
+
+    @Override
+    public Class<?> creatorParameterType() {
+        return String.class;
+    }
+
+    @Override
+    public DecoderTest.Generated create(Object value) {
+        return new DecoderTest.Generated(0, (String) value);
+    }
+}
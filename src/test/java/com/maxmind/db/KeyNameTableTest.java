@@ -0,0 +1,47 @@
+package com.maxmind.db;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class KeyNameTableTest {
+    @Test
+    public void testIndexOf() {
+        var table = new KeyNameTable(Map.of("name", 0, "nome", 1, "été", 2, "", 3));
+        assertEquals(0, indexOf(table, "name"));
+        assertEquals(1, indexOf(table, "nome"));
+        assertEquals(2, indexOf(table, "été"));
+        assertEquals(3, indexOf(table, ""));
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, indexOf(table, "names"));
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, indexOf(table, "nam"));
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, indexOf(table, "nime"));
+    }
+
+    @Test
+    public void testManyNames() {
+        var indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            indexes.put("key" + i, i);
+        }
+        var table = new KeyNameTable(indexes);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, indexOf(table, "key" + i));
+        }
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, indexOf(table, "key100"));
+    }
+
+    @Test
+    public void testNoNames() {
+        var table = new KeyNameTable(Map.of());
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, indexOf(table, "name"));
+    }
+
+    private static int indexOf(KeyNameTable table, String key) {
+        // Place the key after another byte, so that the offset matters.
+        var bytes = ("x" + key).getBytes(UTF_8);
+        return table.indexOf(SingleBuffer.wrap(bytes), 1, bytes.length - 1);
+    }
+}
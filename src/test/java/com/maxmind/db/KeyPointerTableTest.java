@@ -0,0 +1,52 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class KeyPointerTableTest {
+    @Test
+    public void testGetAndPut() {
+        var table = new KeyPointerTable();
+        assertEquals(KeyPointerTable.UNKNOWN, table.get(100));
+        table.put(100, 3);
+        table.put(200, KeyPointerTable.NOT_A_PARAMETER);
+        table.put(0, 0);
+        assertEquals(3, table.get(100));
+        assertEquals(KeyPointerTable.NOT_A_PARAMETER, table.get(200));
+        assertEquals(0, table.get(0));
+        assertEquals(KeyPointerTable.UNKNOWN, table.get(300));
+
+        // The first index put for an offset is kept.
+        table.put(100, 4);
+        assertEquals(3, table.get(100));
+    }
+
+    @Test
+    public void testFullTable() {
+        var table = new KeyPointerTable();
+        int known = 0;
+        for (int offset = 0; offset < 10_000; offset++) {
+            table.put(offset, offset % 100);
+        }
+        for (int offset = 0; offset < 10_000; offset++) {
+            var index = table.get(offset);
+            if (index != KeyPointerTable.UNKNOWN) {
+                assertEquals(offset % 100, index);
+                known++;
+            }
+        }
+        // Offsets that did not fit are unknown rather than wrong.
+        assertTrue(known > 0 && known <= 256, "known: " + known);
+    }
+
+    @Test
+    public void testOutOfRange() {
+        var table = new KeyPointerTable();
+        table.put(1L << 50, 1);
+        table.put(1, 1 << 20);
+        assertEquals(KeyPointerTable.UNKNOWN, table.get(1L << 50));
+        assertEquals(KeyPointerTable.UNKNOWN, table.get(1));
+    }
+}
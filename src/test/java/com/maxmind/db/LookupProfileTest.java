@@ -0,0 +1,139 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LookupProfileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRecordsNetworks() throws IOException {
+        var database = SyntheticDatabase.builder().ipVersion(4).build();
+        var profile = new LookupProfile(100);
+        try (var reader = this.open(database, profile, new CHMCache(), null)) {
+            var result = new LookupResult<Map>();
+            reader.lookup(new byte[] {1, 2, 3, 4}, Map.class, result);
+            // Another address in the same network is the same entry.
+            var prefixLength = result.prefixLength();
+            var other = (1 << 24 | 2 << 16 | 3 << 8 | 4) ^ (1 << (31 - prefixLength));
+            reader.lookup(other, Map.class, result);
+            reader.lookup(new byte[] {1, 2, 3, 4}, Map.class, result);
+
+            assertEquals(3, profile.recordedCount());
+            var entries = profile.entries();
+            assertEquals(1, entries.size());
+            var entry = entries.get(0);
+            assertEquals(32, entry.bitLength());
+            assertEquals(prefixLength, entry.prefixLength());
+            long mask = -1L << (64 - prefixLength);
+            assertEquals((0x01020304L << 32) & mask, entry.high());
+            assertEquals(0, entry.low());
+            assertTrue(entry.dataOffset() >= 0);
+        }
+    }
+
+    @Test
+    public void testKeepsMostRecent() {
+        var profile = new LookupProfile(10);
+        for (int i = 0; i < 25; i++) {
+            profile.record((long) i << 32, 0, 32, 32, i);
+        }
+        var entries = profile.entries();
+        assertEquals(10, entries.size());
+        assertEquals(15, entries.get(0).dataOffset());
+        assertEquals(24, entries.get(9).dataOffset());
+    }
+
+    @Test
+    public void testSaveLoadAndReplay() throws IOException {
+        var database = SyntheticDatabase.builder().nodeCount(20_000).build();
+        var profile = new LookupProfile(1_000);
+        var random = new Random(0);
+        var addresses = new byte[500][];
+        try (var reader = this.open(database, profile, new CHMCache(), null)) {
+            var result = new LookupResult<Map>();
+            for (int i = 0; i < addresses.length; i++) {
+                // Both IPv4 and IPv6 lookups.
+                addresses[i] = new byte[i % 2 == 0 ? 4 : 16];
+                random.nextBytes(addresses[i]);
+                reader.lookup(addresses[i], Map.class, result);
+            }
+        }
+
+        var file = this.tempDir.resolve("profile");
+        profile.save(file);
+        assertTrue(Files.exists(file));
+
+        var loaded = new LookupProfile(1_000);
+        loaded.load(file);
+        assertEquals(new HashSet<>(profile.entries()), new HashSet<>(loaded.entries()));
+
+        var recordStats = new CacheStats();
+        try (var reader = this.open(database, null, new CHMCache(100_000),
+            new CHMCache(100_000, recordStats))) {
+            assertEquals(loaded.entries().size(), loaded.replay(reader, Map.class));
+            long misses = recordStats.missCount();
+            assertTrue(misses > 0);
+
+            // The replayed lookups are cached.
+            var result = new LookupResult<Map>();
+            for (var address : addresses) {
+                reader.lookup(address, Map.class, result);
+                var expected = database.expected(address);
+                assertEquals(database.record(expected.recordIndex()), result.data());
+            }
+            assertEquals(misses, recordStats.missCount());
+        }
+    }
+
+    @Test
+    public void testLoadInvalidFile() throws IOException {
+        var file = this.tempDir.resolve("profile");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5});
+        var profile = new LookupProfile(10);
+        assertThrows(IOException.class, () -> profile.load(file));
+
+        profile.record(1L << 32, 0, 32, 32, 0);
+        profile.save(file);
+        var bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> new LookupProfile(10).load(file));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new LookupProfile(0));
+        assertThrows(IllegalArgumentException.class, () -> new LookupProfile(10, 0));
+    }
+
+    private Reader open(
+        SyntheticDatabase database,
+        LookupProfile profile,
+        NodeCache cache,
+        NodeCache recordCache
+    ) throws IOException {
+        var file = this.tempDir.resolve("test.mmdb");
+        if (!Files.exists(file)) {
+            database.write(file);
+        }
+        var builder = new Reader.Builder(file.toFile())
+            .withCache(cache)
+            .withLookupProfile(profile);
+        if (recordCache != null) {
+            builder.withRecordCache(recordCache);
+        }
+        return builder.build();
+    }
+}
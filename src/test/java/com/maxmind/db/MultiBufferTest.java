@@ -115,158 +115,147 @@ public class MultiBufferTest {
     }
 
     @Test
-    public void testPositionSetter() {
-        var buffer = createEmptyBuffer(1000);
-        buffer.position(500);
-        assertEquals(500, buffer.position());
+    public void testGetByIndex() {
+        var buffer = createBuffer(24);
+        assertEquals(0x2a, buffer.getByte(4));
+        assertEquals(0x1, buffer.getByte(10));
+        assertEquals((byte) 0xa2, buffer.getByte(0));
     }
 
     @Test
-    public void testPositionSetterInvalidNegative() {
-        var buffer = createEmptyBuffer(1000);
-        assertThrows(IllegalArgumentException.class, () -> buffer.position(-1));
+    public void testGetByIndexOutOfBounds() {
+        var buffer = createBuffer(24);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByte(89));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getByte(-1));
     }
 
     @Test
-    public void testPositionSetterExceedsLimit() {
-        var buffer = createEmptyBuffer(1000);
-        buffer.limit(500);
-        assertThrows(IllegalArgumentException.class, () -> buffer.position(600));
+    public void testGetIntByIndex() {
+        var buffer = createBuffer(24);
+        assertEquals(0xa201f4c2, buffer.getInt(0));
+        assertEquals(0x2a780201, buffer.getInt(4));
     }
 
     @Test
-    public void testLimitSetter() {
-        var buffer = createEmptyBuffer(1000);
-        buffer.limit(500);
-        assertEquals(500, buffer.limit());
+    public void testGetIntByIndexAcrossChunks() {
+        var buffer = createBuffer(24);
+        // Bytes 22 and 23 are in the first chunk and 24 and 25 in the second.
+        assertEquals(0x48f5c343, buffer.getInt(22));
     }
 
     @Test
-    public void testLimitSetterInvalidNegative() {
-        var buffer = createEmptyBuffer(1000);
-        assertThrows(IllegalArgumentException.class, () -> buffer.limit(-1));
+    public void testGetIntByIndexOutOfBounds() {
+        var buffer = createBuffer(24);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getInt(86));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getInt(-1));
     }
 
     @Test
-    public void testLimitSetterExceedsCapacity() {
-        var buffer = createEmptyBuffer(1000);
-        assertThrows(IllegalArgumentException.class, () -> buffer.limit(1001));
+    public void testGetLongByIndex() {
+        var buffer = createBuffer(24);
+        assertEquals(0xa201f4c22a780201L, buffer.getLong(0));
     }
 
     @Test
-    public void testLimitSetterAdjustsPosition() {
-        var buffer = createEmptyBuffer(1000);
-        buffer.position(800);
-        buffer.limit(500);
-        assertEquals(500, buffer.position());
+    public void testGetLongByIndexAcrossChunks() {
+        var buffer = createBuffer(16);
+        assertEquals(0x400921fb54442eeaL, buffer.getLong(13));
     }
 
     @Test
-    public void testGetByIndex() {
+    public void testGetLongByIndexOutOfBounds() {
         var buffer = createBuffer(24);
-        assertEquals(0x2a, buffer.get(4));
-        assertEquals(0x1, buffer.get(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getLong(82));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getLong(-1));
     }
 
     @Test
-    public void testGetByIndexOutOfBounds() {
+    public void testGetUnsigned() {
         var buffer = createBuffer(24);
-        buffer.limit(50);
-        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(50));
-        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(-1));
+        assertEquals(0, buffer.getUnsigned(0, 0));
+        assertEquals(0xa2, buffer.getUnsigned(0, 1));
+        assertEquals(0xa201f4, buffer.getUnsigned(0, 3));
+        assertEquals(0xa201f4, buffer.getUnsigned24(0));
+        assertEquals(0xa201f4c2L, buffer.getUnsigned32(0));
+        assertEquals(0xa201f4c22a780201L, buffer.getUnsigned(0, 8));
+    }
+
+    // Chunks of 16 are split with a shift, the others with a division. With
+    // chunks of 4, an 8-byte read spans three of them.
+    @Test
+    public void testGetUnsignedAcrossChunks() {
+        var whole = createBuffer(89);
+        for (var chunkSize : new int[] {4, 7, 16, 24}) {
+            var buffer = createBuffer(chunkSize);
+            for (int size = 0; size <= 8; size++) {
+                for (long index = 0; index <= 89 - size; index++) {
+                    var expected = 0L;
+                    for (int i = 0; i < size; i++) {
+                        expected = (expected << 8) | (whole.getByte(index + i) & 0xFF);
+                    }
+                    var message = "chunk " + chunkSize + ", index " + index + ", size " + size;
+                    assertEquals(expected, buffer.getUnsigned(index, size), message);
+                    assertEquals(expected, whole.getUnsigned(index, size), message);
+                }
+            }
+        }
     }
 
     @Test
-    public void testGetSingleByte() {
+    public void testGetUnsignedOutOfBounds() {
         var buffer = createBuffer(24);
-         assertEquals((byte) 0xa2, buffer.get());
-         assertEquals(1, buffer.position());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getUnsigned(87, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getUnsigned24(87));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getUnsigned(-1, 1));
     }
 
     @Test
     public void testGetByteArray() {
         var buffer = createBuffer(24);
         var dst = new byte[10];
-        buffer.position(32);
-        buffer.get(dst);
+        buffer.getBytes(32, dst);
         var expectedBytes = new byte[]{
                 0x2, 0x4,
                 0x43, 0x46, 0x6f, 0x6f,
                 0x43, (byte) 0xe4, (byte) 0xba, (byte) 0xba};
         assertArrayEquals(expectedBytes, dst);
-        assertEquals(42, buffer.position());
     }
 
     @Test
-    public void testGetByteArrayExceedsLimit() {
-        var buffer = createEmptyBuffer(100);
-        buffer.limit(5);
-        var dst = new byte[10];
-        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(dst));
+    public void testGetByteArrayExceedsCapacity() {
+        var buffer = createEmptyBuffer(5);
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getBytes(0, new byte[10]));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getBytes(-1, new byte[1]));
     }
 
     @Test
     public void testGetByteArrayAcrossChunks() {
         var buffer = createBuffer(35);
         var dst = new byte[10];
-        buffer.position(32);
-        buffer.get(dst);
+        buffer.getBytes(32, dst);
         var expectedBytes = new byte[]{
                 0x2, 0x4,
                 0x43, 0x46, 0x6f, 0x6f,
                 0x43, (byte) 0xe4, (byte) 0xba, (byte) 0xba};
         assertArrayEquals(expectedBytes, dst);
-        assertEquals(42, buffer.position());
     }
 
     @Test
     public void testGetDouble() {
         var buffer = createBuffer(24);
-        buffer.position(13);
-        assertEquals(3.14159265359, buffer.getDouble());
-        assertEquals(21, buffer.position());
-    }
-
-    @Test
-    public void testGetDoubleAcrossChunks() {
-        var buffer = createBuffer(16);
-        buffer.position(13);
-        assertEquals(3.14159265359, buffer.getDouble());
-        assertEquals(21, buffer.position());
+        assertEquals(3.14159265359, Double.longBitsToDouble(buffer.getLong(13)));
     }
 
     @Test
     public void testGetFloat() {
         var buffer = createBuffer(26);
-        buffer.position(21);
-        assertEquals(3.14f, buffer.getFloat());
-        assertEquals(25, buffer.position());
+        assertEquals(3.14f, Float.intBitsToFloat(buffer.getInt(21)));
     }
 
     @Test
     public void testGetFloatAcrossChunks() {
         var buffer = createBuffer(22);
-        buffer.position(21);
-        assertEquals(3.14f, buffer.getFloat());
-        assertEquals(25, buffer.position());
-    }
-
-    @Test
-    public void testDuplicate() {
-        var original = createEmptyBuffer(1000);
-        original.position(100);
-        original.limit(800);
-
-        var duplicate = (MultiBuffer) original.duplicate();
-
-        assertEquals(original.capacity(), duplicate.capacity());
-        assertEquals(original.position(), duplicate.position());
-        assertEquals(original.limit(), duplicate.limit());
-        assertEquals(original.buffers.length, duplicate.buffers.length);
-
-        duplicate.position(200);
-        assertEquals(100, original.position());
-        assertEquals(200, duplicate.position());
+        assertEquals(3.14f, Float.intBitsToFloat(buffer.getInt(21)));
     }
 
     @Test
@@ -309,7 +298,8 @@ public class MultiBufferTest {
             buffer.flip();
             var multiBuffer = new MultiBuffer(new ByteBuffer[]{buffer}, testData.length);
             assertEquals(21, bytesRead);
-            assertEquals(0, multiBuffer.position());
+            assertEquals(21, multiBuffer.capacity());
+            assertEquals((byte) 0xa2, multiBuffer.getByte(0));
         }
     }
 
@@ -345,29 +335,33 @@ public class MultiBufferTest {
     @Test
     public void testDecodeString() throws CharacterCodingException {
         var buffer = createBuffer(22);
-        buffer.position(26);
-        buffer.limit(29);
-        var result = buffer.decode(StandardCharsets.UTF_8.newDecoder());
+        var result = buffer.decodeString(26, 3, StandardCharsets.UTF_8.newDecoder());
         assertEquals("123", result);
-        assertEquals(29, buffer.position());
     }
 
     @Test
-    public void testDecodeStringTooLarge() {
-        var buffer = createBuffer(65);
-        buffer.position(62);
-        buffer.limit(89);
-        assertThrows(IllegalStateException.class, () ->
-                buffer.decode(StandardCharsets.UTF_8.newDecoder(), 20));
+    public void testDecodeMalformedString() {
+        var chunks = new ByteBuffer[] {
+                ByteBuffer.wrap(new byte[] {0x41, (byte) 0xff}),
+                ByteBuffer.wrap(new byte[] {(byte) 0xfe, 0x42})
+        };
+        var buffer = new MultiBuffer(chunks, 2);
+        var decoder = StandardCharsets.UTF_8.newDecoder();
+        assertThrows(CharacterCodingException.class, () -> buffer.decodeString(0, 2, decoder));
+        assertThrows(CharacterCodingException.class, () -> buffer.decodeString(1, 2, decoder));
     }
 
     @Test
     public void testDecodeAcrossChunks() throws CharacterCodingException {
         var buffer = createBuffer(65);
-        buffer.position(62);
-        buffer.limit(89);
-        var result = buffer.decode(StandardCharsets.UTF_8.newDecoder());
+        var result = buffer.decodeString(62, 27, StandardCharsets.UTF_8.newDecoder());
         assertEquals("123456789012345678901234567", result);
-        assertEquals(89, buffer.position());
+    }
+
+    @Test
+    public void testDecodeExceedsCapacity() {
+        var buffer = createBuffer(65);
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> buffer.decodeString(62, 28, StandardCharsets.UTF_8.newDecoder()));
     }
 }
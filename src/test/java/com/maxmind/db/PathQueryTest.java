@@ -0,0 +1,128 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class PathQueryTest {
+    private static final String[] PATHS = {
+        "country.iso_code",
+        "location.latitude",
+        "location.longitude",
+        "location",
+        "subdivisions.0.iso_code",
+        "city.names.en",
+        "continent",
+        // Paths that are not in the records.
+        "missing",
+        "country.iso_code.code",
+        "subdivisions.1.iso_code",
+        "subdivisions.00.iso_code",
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCompile() throws IOException {
+        try (var reader = this.open(SyntheticDatabase.builder().build())) {
+            var query = reader.compile("a.b", "a", "c");
+            assertEquals(List.of("a.b", "a", "c"), query.paths());
+            assertEquals(3, query.size());
+
+            assertThrows(IllegalArgumentException.class, () -> reader.compile(""));
+            assertThrows(IllegalArgumentException.class, () -> reader.compile("a..b"));
+            assertThrows(IllegalArgumentException.class, () -> reader.compile("a."));
+            assertThrows(IllegalArgumentException.class, () -> reader.compile("a.b", "a.b"));
+        }
+    }
+
+    // With deduplication, most keys and the shared maps are pointers.
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testQueryMatchesRecord(boolean deduplicate) throws IOException {
+        var database = SyntheticDatabase.builder().deduplicate(deduplicate).build();
+        try (var reader = this.open(database)) {
+            var query = reader.compile(PATHS);
+            var result = new QueryResult();
+            var random = new Random(0);
+            for (int i = 0; i < 200; i++) {
+                var address = new byte[i % 2 == 0 ? 4 : 16];
+                random.nextBytes(address);
+                var expected = database.expected(address);
+
+                assertTrue(reader.query(address, query, result).hasData());
+                assertEquals(expected.prefixLength(), result.prefixLength());
+                assertEquals(PATHS.length, result.size());
+                var record = database.record(expected.recordIndex());
+                for (int j = 0; j < PATHS.length; j++) {
+                    assertEquals(valueAt(record, PATHS[j]), result.get(j), PATHS[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReuseResult() throws IOException {
+        var database = SyntheticDatabase.builder().ipVersion(4).build();
+        try (var reader = this.open(database)) {
+            var address = InetAddress.getByName("1.2.3.4");
+            var record = database.record(database.expected(address.getAddress()).recordIndex());
+            var result = new QueryResult();
+
+            reader.query(address, reader.compile("country.iso_code", "postal.code"), result);
+            assertEquals(2, result.size());
+            assertEquals(valueAt(record, "postal.code"), result.get(1));
+
+            reader.query(address, reader.compile("location.time_zone"), result);
+            assertEquals(1, result.size());
+            assertEquals(valueAt(record, "location.time_zone"), result.get(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> result.get(1));
+
+            assertThrows(IllegalArgumentException.class,
+                () -> reader.query(new byte[5], reader.compile("a"), result));
+        }
+    }
+
+    @Test
+    public void testNoValues() throws IOException {
+        try (var reader = this.open(SyntheticDatabase.builder().build())) {
+            var result = new QueryResult();
+            reader.query(new byte[4], reader.compile("missing"), result);
+            assertTrue(result.hasData());
+            assertNull(result.get(0));
+        }
+    }
+
+    private static Object valueAt(Object value, String path) {
+        for (var segment : path.split("\\.")) {
+            if (value instanceof Map<?, ?> map) {
+                value = map.get(segment);
+            } else if (value instanceof List<?> list && segment.matches("0|[1-9][0-9]*")
+                && Integer.parseInt(segment) < list.size()) {
+                value = list.get(Integer.parseInt(segment));
+            } else {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    private Reader open(SyntheticDatabase database) throws IOException {
+        var file = this.tempDir.resolve("test.mmdb");
+        database.write(file);
+        return new Reader(file.toFile());
+    }
+}
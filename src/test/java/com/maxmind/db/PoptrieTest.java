@@ -0,0 +1,81 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class PoptrieTest {
+    static Stream<String> databases() {
+        return Stream.of(
+            "MaxMind-DB-test-ipv4-24.mmdb",
+            "MaxMind-DB-test-ipv4-28.mmdb",
+            "MaxMind-DB-test-ipv4-32.mmdb",
+            "MaxMind-DB-test-ipv6-24.mmdb",
+            "MaxMind-DB-test-ipv6-28.mmdb",
+            "MaxMind-DB-test-ipv6-32.mmdb",
+            "MaxMind-DB-test-mixed-24.mmdb",
+            "MaxMind-DB-test-mixed-28.mmdb",
+            "MaxMind-DB-test-mixed-32.mmdb",
+            "MaxMind-DB-test-decoder.mmdb",
+            "MaxMind-DB-no-ipv4-search-tree.mmdb",
+            "GeoIP2-City-Test.mmdb"
+        );
+    }
+
+    // Every network in the database is checked at its first and last
+    // address and at the addresses just outside of it, which are in the
+    // neighbouring networks or in parts of the tree without data.
+    @ParameterizedTest
+    @MethodSource("databases")
+    public void testMatchesSearchTree(String name) throws IOException, InvalidNetworkException {
+        var file = ReaderTest.getFile(name);
+        try (var reader = new Reader(file);
+             var poptrieReader = new Reader.Builder(file).poptrie(true).build()) {
+            var networks = reader.networks(true, Map.class);
+            while (networks.hasNext()) {
+                var network = networks.next().network();
+                var first = network.networkAddress().getAddress();
+                var last = lastAddress(first, network.prefixLength());
+                for (var address : new byte[][] {first, last, add(first, -1), add(last, 1)}) {
+                    assertSameLookup(reader, poptrieReader, address);
+                }
+            }
+        }
+    }
+
+    private static void assertSameLookup(Reader reader, Reader poptrieReader, byte[] address)
+        throws IOException {
+        var expected = reader.lookup(address, Map.class, new LookupResult<>());
+        var actual = poptrieReader.lookup(address, Map.class, new LookupResult<>());
+        var ip = InetAddress.getByAddress(address).getHostAddress();
+        assertEquals(expected.prefixLength(), actual.prefixLength(), ip);
+        assertEquals(expected.data(), actual.data(), ip);
+    }
+
+    private static byte[] lastAddress(byte[] first, int prefixLength) {
+        var last = Arrays.copyOf(first, first.length);
+        for (int i = prefixLength; i < last.length * 8; i++) {
+            last[i / 8] |= (byte) (0x80 >>> (i % 8));
+        }
+        return last;
+    }
+
+    // Adds delta to the address, wrapping around at either end.
+    private static byte[] add(byte[] address, int delta) {
+        var result = Arrays.copyOf(address, address.length);
+        for (int i = result.length - 1; i >= 0; i--) {
+            int value = (result[i] & 0xFF) + delta;
+            result[i] = (byte) value;
+            if (value >= 0 && value <= 0xFF) {
+                break;
+            }
+        }
+        return result;
+    }
+}
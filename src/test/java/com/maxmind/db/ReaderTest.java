@@ -6,13 +6,18 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import com.maxmind.db.Reader.FileMode;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -20,24 +25,41 @@ import java.lang.reflect.Constructor;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 public class ReaderTest {
+    private static final Path PROC_MAPS = Path.of("/proc/self/maps");
+
     private Reader testReader;
 
     @BeforeEach
@@ -102,6 +124,24 @@ public class ReaderTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testTreeOnHeapMode(int chunkSize) throws IOException {
+        for (long recordSize : new long[] {24, 28, 32}) {
+            for (int ipVersion : new int[] {4, 6}) {
+                var file = getFile("MaxMind-DB-test-ipv" + ipVersion + "-" + recordSize + ".mmdb");
+                try (var reader = new Reader(file, FileMode.TREE_ON_HEAP, chunkSize)) {
+                    this.testMetadata(reader, ipVersion, recordSize);
+                    if (ipVersion == 4) {
+                        this.testIpV4(reader, file);
+                    } else {
+                        this.testIpV6(reader, file);
+                    }
+                }
+            }
+        }
+    }
+
     static class GetRecordTest {
         InetAddress ip;
         File db;
@@ -489,6 +529,141 @@ public class ReaderTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testLookup(int chunkSize) throws IOException {
+        var tests = new GetRecordTest[] {
+            new GetRecordTest("1.1.1.1", "MaxMind-DB-test-ipv6-32.mmdb", "1.0.0.0/8", false),
+            new GetRecordTest("::1:ffff:ffff", "MaxMind-DB-test-ipv6-24.mmdb",
+                "0:0:0:0:0:1:ffff:ffff/128", true),
+            new GetRecordTest("::2:0:1", "MaxMind-DB-test-ipv6-24.mmdb", "0:0:0:0:0:2:0:0/122",
+                true),
+            new GetRecordTest("1.1.1.1", "MaxMind-DB-test-ipv4-24.mmdb", "1.1.1.1/32", true),
+            new GetRecordTest("1.1.1.3", "MaxMind-DB-test-ipv4-24.mmdb", "1.1.1.2/31", true),
+            new GetRecordTest("1.1.1.3", "MaxMind-DB-test-decoder.mmdb", "1.1.1.0/24", true),
+            new GetRecordTest("::1.1.1.128", "MaxMind-DB-test-decoder.mmdb",
+                "0:0:0:0:0:0:101:100/120", true),
+        };
+        for (GetRecordTest test : tests) {
+            try (var reader = new Reader(test.db, chunkSize)) {
+                var expected = reader.getRecord(test.ip, Map.class);
+                var address = test.ip.getAddress();
+
+                var result = new LookupResult<Map>();
+                reader.lookup(address, Map.class, result);
+                assertEquals(expected.network().prefixLength(), result.prefixLength());
+                assertEquals(expected.data(), result.data());
+                assertEquals(test.hasRecord, result.hasData());
+
+                // Reusing the holder must overwrite the previous result.
+                if (address.length == 4) {
+                    reader.lookup(ByteBuffer.wrap(address).getInt(), Map.class, result);
+                } else {
+                    var words = ByteBuffer.wrap(address);
+                    reader.lookup(words.getLong(), words.getLong(), Map.class, result);
+                }
+                assertEquals(expected.network().prefixLength(), result.prefixLength());
+                assertEquals(expected.data(), result.data());
+            }
+        }
+    }
+
+    @Test
+    public void testLookupInvalidAddressLength() throws IOException {
+        try (var reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"))) {
+            var ex = assertThrows(IllegalArgumentException.class,
+                () -> reader.lookup(new byte[5], Map.class, new LookupResult<>()));
+            assertEquals("Invalid IP address length: 5", ex.getMessage());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testLookupContextAnnotations(int chunkSize) throws IOException {
+        try (var reader = new Reader(getFile("MaxMind-DB-test-decoder.mmdb"), chunkSize)) {
+            var ip = InetAddress.getByName("1.1.1.3");
+            var expectedNetwork = reader.getRecord(ip, Map.class).network().toString();
+
+            var result = new LookupResult<ContextModel>();
+            reader.lookup(ip.getAddress(), ContextModel.class, result);
+            var model = result.data();
+
+            assertEquals(ip, model.lookupIp);
+            assertEquals(ip.getHostAddress(), model.lookupIpString);
+            assertEquals(expectedNetwork, model.lookupNetwork.toString());
+            assertEquals(expectedNetwork, model.lookupNetworkString);
+            assertEquals(100, model.uint16Field);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testJumpTable(int chunkSize) throws IOException, InvalidNetworkException {
+        var random = new Random(42);
+        var names = new String[] {
+            "MaxMind-DB-test-ipv4-24.mmdb",
+            "MaxMind-DB-test-ipv4-28.mmdb",
+            "MaxMind-DB-test-ipv4-32.mmdb",
+            "MaxMind-DB-test-ipv6-24.mmdb",
+            "MaxMind-DB-test-ipv6-28.mmdb",
+            "MaxMind-DB-test-ipv6-32.mmdb",
+            "MaxMind-DB-test-mixed-24.mmdb",
+            "MaxMind-DB-test-decoder.mmdb",
+            "MaxMind-DB-no-ipv4-search-tree.mmdb",
+        };
+        for (var name : names) {
+            var file = getFile(name);
+            for (var bits : new int[] {1, 8, 16}) {
+                try (var reader = new Reader(file, chunkSize);
+                     var jumpReader = new Reader.Builder(file)
+                         .chunkSize(chunkSize)
+                         .jumpTableBits(bits)
+                         .build()) {
+                    var addresses = new ArrayList<byte[]>();
+                    var networks = reader.networks(true, Map.class);
+                    while (networks.hasNext()) {
+                        var network = networks.next().network();
+                        addresses.add(network.networkAddress().getAddress());
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        var address = new byte[i % 2 == 0 ? 4 : 16];
+                        random.nextBytes(address);
+                        if (i % 4 == 1) {
+                            // Addresses in ::/96 exercise the IPv4 subtree.
+                            Arrays.fill(address, 0, 12, (byte) 0);
+                        }
+                        addresses.add(address);
+                    }
+
+                    for (var address : addresses) {
+                        var ip = InetAddress.getByAddress(address);
+                        var expected = reader.getRecord(ip, Map.class);
+                        var actual = jumpReader.getRecord(ip, Map.class);
+                        assertEquals(expected.network().toString(), actual.network().toString(),
+                            name + " " + ip);
+                        assertEquals(expected.data(), actual.data(), name + " " + ip);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJumpTableBitsOutOfRange() {
+        var builder = new Reader.Builder(getFile("MaxMind-DB-test-decoder.mmdb"));
+        var ex = assertThrows(IllegalArgumentException.class,
+            () -> builder.jumpTableBits(21));
+        assertEquals("The jump table bits must be between 0 and 20: 21", ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> builder.jumpTableBits(-1));
+    }
+
+    @Test
+    public void testBuilderStreamFileMode() {
+        var builder = new Reader.Builder(new ByteArrayInputStream(new byte[0]));
+        assertThrows(IllegalArgumentException.class,
+            () -> builder.fileMode(FileMode.MEMORY_MAPPED));
+    }
+
     @ParameterizedTest
     @MethodSource("chunkSizes")
     public void testMetadataPointers(int chunkSize) throws IOException {
@@ -613,6 +788,146 @@ public class ReaderTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testRecordCache(int chunkSize) throws IOException {
+        var file = getFile("MaxMind-DB-test-decoder.mmdb");
+        try (var reader = new Reader.Builder(file)
+                 .withRecordCache(new CHMCache())
+                 .chunkSize(chunkSize)
+                 .build()) {
+            var firstIp = InetAddress.getByName("1.1.1.1");
+            var secondIp = InetAddress.getByName("1.1.1.3");
+
+            // Both addresses are in 1.1.1.0/24, so they share a record.
+            var first = reader.get(firstIp, Map.class);
+            var second = reader.get(secondIp, Map.class);
+            assertSame(first, second);
+
+            var result = new LookupResult<Map>();
+            reader.lookup(firstIp.getAddress(), Map.class, result);
+            assertSame(first, result.data());
+
+            // The record is cached separately for each class.
+            var model = reader.get(firstIp, TestModel.class);
+            assertSame(model, reader.get(secondIp, TestModel.class));
+            assertNotSame(first, model);
+
+            // Records that depend on the lookup are not cached.
+            var firstContext = reader.get(firstIp, ContextModel.class);
+            var secondContext = reader.get(secondIp, ContextModel.class);
+            assertEquals(firstIp, firstContext.lookupIp);
+            assertEquals(secondIp, secondContext.lookupIp);
+
+            var firstWrapper = reader.get(firstIp, WrapperContextOnlyModel.class);
+            var secondWrapper = reader.get(secondIp, WrapperContextOnlyModel.class);
+            assertEquals(firstIp, firstWrapper.context.lookupIp);
+            assertEquals(secondIp, secondWrapper.context.lookupIp);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("chunkSizes")
+    public void testLookupStats(int chunkSize) throws IOException {
+        var lookupStats = new LookupStats();
+        var cacheStats = new CacheStats();
+        try (var reader = new Reader.Builder(getFile("MaxMind-DB-test-ipv4-24.mmdb"))
+                 .withRecordCache(new CHMCache(4096, cacheStats))
+                 .withLookupStats(lookupStats)
+                 .chunkSize(chunkSize)
+                 .build()) {
+            reader.get(InetAddress.getByName("1.1.1.1"), Map.class);
+            reader.get(InetAddress.getByName("1.1.1.1"), Map.class);
+            reader.lookup(InetAddress.getByName("1.1.1.3").getAddress(), Map.class,
+                new LookupResult<>());
+            reader.get(InetAddress.getByName("1.1.1.33"), Map.class);
+        }
+
+        assertEquals(4, lookupStats.lookupCount());
+        assertEquals(1, lookupStats.notFoundCount());
+        assertEquals(3, lookupStats.decodeCount());
+        assertTrue(lookupStats.totalDecodeTimeNanos() > 0);
+        // 1.1.1.33 has no data but is next to 1.1.1.32/32, so its lookup
+        // also ends at depth 32.
+        assertEquals(3, lookupStats.depthCount(32));
+        assertEquals(1, lookupStats.depthCount(31));
+        var histogram = lookupStats.depthHistogram();
+        assertEquals(129, histogram.length);
+        assertEquals(4, Arrays.stream(histogram).sum());
+        assertThrows(IllegalArgumentException.class, () -> lookupStats.depthCount(129));
+
+        assertEquals(1, cacheStats.hitCount());
+        assertEquals(2, cacheStats.missCount());
+        assertEquals(2, cacheStats.loadSuccessCount());
+        assertEquals(0, cacheStats.evictionCount());
+    }
+
+    @Test
+    public void testJfrEvents() throws IOException {
+        List<RecordedEvent> events;
+        String databaseType;
+        try (var recording = new Recording()) {
+            // The close event is left disabled, as all events are by default.
+            recording.enable("com.maxmind.db.DatabaseOpen");
+            recording.enable("com.maxmind.db.Lookup");
+            recording.enable("com.maxmind.db.Decode");
+            recording.enable("com.maxmind.db.CacheLoad");
+            recording.start();
+            try (var reader = new Reader.Builder(getFile("MaxMind-DB-test-ipv4-24.mmdb"))
+                     .withRecordCache(new CHMCache())
+                     .build()) {
+                databaseType = reader.getMetadata().databaseType();
+                reader.get(InetAddress.getByName("1.1.1.1"), Map.class);
+                reader.lookup(InetAddress.getByName("1.1.1.1").getAddress(), Map.class,
+                    new LookupResult<>());
+                reader.get(InetAddress.getByName("1.1.1.33"), Map.class);
+            }
+            recording.stop();
+
+            var file = Files.createTempFile("maxmind-db", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        var open = eventsNamed(events, "com.maxmind.db.DatabaseOpen");
+        assertEquals(1, open.size());
+        assertEquals("MaxMind-DB-test-ipv4-24.mmdb", open.get(0).getString("source"));
+        assertEquals(databaseType, open.get(0).getString("databaseType"));
+        assertEquals("MEMORY_MAPPED", open.get(0).getString("fileMode"));
+
+        var lookups = eventsNamed(events, "com.maxmind.db.Lookup");
+        assertEquals(3, lookups.size());
+        assertEquals(4, lookups.get(0).getInt("ipVersion"));
+        assertEquals(32, lookups.get(0).getInt("prefixLength"));
+        assertTrue(lookups.get(0).getBoolean("found"));
+        assertEquals("java.util.Map", lookups.get(0).getString("recordType"));
+        assertFalse(lookups.get(2).getBoolean("found"));
+
+        var decodes = eventsNamed(events, "com.maxmind.db.Decode");
+        assertEquals(2, decodes.size());
+        assertFalse(decodes.get(0).getBoolean("recordCacheHit"));
+        assertTrue(decodes.get(1).getBoolean("recordCacheHit"));
+
+        var loads = eventsNamed(events, "com.maxmind.db.CacheLoad");
+        assertEquals(1, loads.size());
+        assertTrue(loads.get(0).getBoolean("record"));
+        assertEquals(decodes.get(0).getLong("offset"), loads.get(0).getLong("offset"));
+        assertTrue(loads.get(0).getLong("bytesRead") > 0);
+
+        assertEquals(0, eventsNamed(events, "com.maxmind.db.DatabaseClose").size());
+    }
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        return events.stream()
+            .filter(e -> e.getEventType().getName().equals(name))
+            .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+            .toList();
+    }
+
     @ParameterizedTest
     @MethodSource("chunkSizes")
     public void testCreatorMethod(int chunkSize) throws IOException {
@@ -1927,6 +2242,221 @@ public class ReaderTest {
         assertEquals("The MaxMind DB has been closed.", ex.getMessage());
     }
 
+    @Test
+    public void testUnmapOnClose(@TempDir Path tempDir) throws IOException {
+        assumeTrue(Files.isReadable(PROC_MAPS), "requires /proc/self/maps");
+        var file = tempDir.resolve("unmap.mmdb");
+        SyntheticDatabase.builder().ipVersion(4).build().write(file);
+
+        var reader = new Reader.Builder(file.toFile()).unmapOnClose(true).build();
+        var result = new LookupResult<Map>();
+        reader.lookup(new byte[] {1, 2, 3, 4}, Map.class, result);
+        assertNotNull(result.data());
+        assertTrue(isMapped(file));
+
+        reader.close();
+        assertFalse(isMapped(file));
+        assertThrows(ClosedDatabaseException.class,
+            () -> reader.lookup(new byte[] {1, 2, 3, 4}, Map.class, result));
+        // A second close is a no-op.
+        reader.close();
+    }
+
+    @Test
+    public void testUnmapOnCloseWithInvalidDatabase(@TempDir Path tempDir) throws IOException {
+        assumeTrue(Files.isReadable(PROC_MAPS), "requires /proc/self/maps");
+        var file = tempDir.resolve("invalid.mmdb");
+        var bytes = new byte[4096];
+        new Random(0).nextBytes(bytes);
+        Files.write(file, bytes);
+
+        var builder = new Reader.Builder(file.toFile()).unmapOnClose(true);
+        assertThrows(InvalidDatabaseException.class, builder::build);
+        // The failed constructor released the mapping rather than leaving it
+        // to a reader that was never returned.
+        assertFalse(isMapped(file));
+    }
+
+    @Test
+    public void testUnmapOnCloseWaitsForInFlightUsers(@TempDir Path tempDir)
+        throws IOException, InvalidNetworkException {
+        assumeTrue(Files.isReadable(PROC_MAPS), "requires /proc/self/maps");
+        var file = tempDir.resolve("unmap.mmdb");
+        SyntheticDatabase.builder().ipVersion(4).build().write(file);
+
+        var reader = new Reader.Builder(file.toFile()).unmapOnClose(true).build();
+        var networks = reader.networks(Map.class);
+        var bufferHolder = reader.getBufferHolder();
+        bufferHolder.acquire();
+        reader.close();
+
+        // The buffer stays mapped, and readable, until the last user
+        // releases it.
+        assertTrue(isMapped(file));
+        assertEquals(bufferHolder.get().getByte(0), bufferHolder.get().getByte(0));
+        bufferHolder.release();
+        assertFalse(isMapped(file));
+
+        assertThrows(ClosedDatabaseException.class, bufferHolder::acquire);
+        var ex = assertThrows(NetworksIterationException.class, networks::hasNext);
+        assertInstanceOf(ClosedDatabaseException.class, ex.getCause());
+    }
+
+    @Test
+    public void testUnmapOnCloseWithConcurrentLookups(@TempDir Path tempDir)
+        throws Exception {
+        var file = tempDir.resolve("unmap.mmdb");
+        var database = SyntheticDatabase.builder().nodeCount(20_000).build();
+        database.write(file);
+
+        var reader = new Reader.Builder(file.toFile()).unmapOnClose(true).build();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 4; t++) {
+                var seed = t;
+                futures.add(executor.submit(() -> {
+                    var random = new Random(seed);
+                    var address = new byte[16];
+                    var result = new LookupResult<Map>();
+                    var lookups = 0;
+                    while (true) {
+                        random.nextBytes(address);
+                        try {
+                            reader.lookup(address, Map.class, result);
+                        } catch (ClosedDatabaseException e) {
+                            return lookups;
+                        }
+                        var expected = database.expected(address);
+                        assertEquals(database.record(expected.recordIndex()), result.data());
+                        lookups++;
+                    }
+                }));
+            }
+            Thread.sleep(50);
+            reader.close();
+            for (var future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The reader is closed after the lookup acquired the buffer but before
+    // the record is loaded into the record cache.
+    @Test
+    public void testCloseDuringRecordCacheLoad(@TempDir Path tempDir) throws IOException {
+        var file = tempDir.resolve("close.mmdb");
+        var database = SyntheticDatabase.builder().ipVersion(4).build();
+        database.write(file);
+
+        var readers = new ArrayList<Reader>();
+        NodeCache closing = (key, loader) -> {
+            readers.get(0).close();
+            return loader.load(key);
+        };
+        var reader = new Reader.Builder(file.toFile())
+            .unmapOnClose(true)
+            .withRecordCache(closing)
+            .build();
+        readers.add(reader);
+
+        var address = new byte[] {1, 2, 3, 4};
+        var result = reader.lookup(address, Map.class, new LookupResult<Map>());
+        var expected = database.expected(address);
+        assertEquals(database.record(expected.recordIndex()), result.data());
+        assertThrows(ClosedDatabaseException.class,
+            () -> reader.lookup(address, Map.class, new LookupResult<Map>()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("preloadModes")
+    public void testPreload(FileMode mode, boolean background, @TempDir Path tempDir)
+        throws Exception {
+        var file = tempDir.resolve("preload.mmdb");
+        SyntheticDatabase.builder().ipVersion(4).build().write(file);
+
+        try (var reader = new Reader.Builder(file.toFile())
+            .fileMode(mode)
+            .preload(Reader.Region.SEARCH_TREE, Reader.Region.DATA_SECTION)
+            .preloadInBackground(background)
+            .build()) {
+            if (!background) {
+                assertTrue(reader.preloaded().isDone());
+            }
+            reader.preloaded().get(10, TimeUnit.SECONDS);
+            assertTrue(reader.isResident(Reader.Region.SEARCH_TREE));
+            assertTrue(reader.isResident(Reader.Region.DATA_SECTION));
+
+            var result = new LookupResult<Map>();
+            reader.lookup(new byte[] {1, 2, 3, 4}, Map.class, result);
+            assertNotNull(result.data());
+        }
+    }
+
+    @Test
+    public void testPreloadWithExecutor(@TempDir Path tempDir) throws Exception {
+        var file = tempDir.resolve("preload.mmdb");
+        SyntheticDatabase.builder().ipVersion(4).build().write(file);
+        var builder = new Reader.Builder(file.toFile()).preload(Reader.Region.SEARCH_TREE);
+
+        var tasks = new ArrayList<Runnable>();
+        try (var reader = builder.preloadInBackground(tasks::add).build()) {
+            assertEquals(1, tasks.size());
+            assertFalse(reader.preloaded().isDone());
+            tasks.get(0).run();
+            reader.preloaded().get(10, TimeUnit.SECONDS);
+            assertTrue(reader.isResident(Reader.Region.SEARCH_TREE));
+        }
+
+        // A reader closed before the task runs, which unmaps the file.
+        tasks.clear();
+        var closed = builder.unmapOnClose(true).build();
+        closed.close();
+        tasks.get(0).run();
+        var ex = assertThrows(ExecutionException.class, () -> closed.preloaded().get());
+        assertInstanceOf(ClosedDatabaseException.class, ex.getCause());
+
+        try (var reader = builder.preloadInBackground(task -> {
+            throw new RejectedExecutionException("full");
+        }).build()) {
+            ex = assertThrows(ExecutionException.class, () -> reader.preloaded().get());
+            assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        }
+
+        assertThrows(NullPointerException.class,
+            () -> builder.preloadInBackground((Executor) null));
+    }
+
+    static List<Object[]> preloadModes() {
+        var modes = new ArrayList<Object[]>();
+        for (var mode : FileMode.values()) {
+            modes.add(new Object[] {mode, false});
+            modes.add(new Object[] {mode, true});
+        }
+        return modes;
+    }
+
+    @Test
+    public void testNoPreload(@TempDir Path tempDir) throws IOException {
+        var file = tempDir.resolve("preload.mmdb");
+        SyntheticDatabase.builder().ipVersion(4).build().write(file);
+
+        var reader = new Reader.Builder(file.toFile()).build();
+        assertTrue(reader.preloaded().isDone());
+        reader.close();
+        assertThrows(ClosedDatabaseException.class,
+            () -> reader.isResident(Reader.Region.SEARCH_TREE));
+    }
+
+    private static boolean isMapped(Path file) throws IOException {
+        var name = file.toRealPath().toString();
+        try (var lines = Files.lines(PROC_MAPS)) {
+            return lines.anyMatch(line -> line.endsWith(name));
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("chunkSizes")
     public void voidTestMapKeyIsString(int chunkSize) throws IOException {
@@ -0,0 +1,216 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ReloadingReaderTest {
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReloadsReplacedFile() throws Exception {
+        var file = this.tempDir.resolve("reload.mmdb");
+        this.replace(file, database("First"));
+
+        var events = new LinkedBlockingQueue<Object>();
+        try (var reader = new ReloadingReader.Builder(file)
+            .pollInterval(POLL_INTERVAL)
+            .listener(new QueueListener(events))
+            .build()) {
+            assertEquals("First", reader.getMetadata().databaseType());
+            var record = reader.get(InetAddress.getByName("1.2.3.4"), Map.class);
+            assertNotNull(record);
+
+            this.replace(file, database("Second"));
+            var event = next(events);
+            assertInstanceOf(Metadata.class, event);
+            assertEquals("Second", ((Metadata) event).databaseType());
+            assertEquals("Second", reader.getMetadata().databaseType());
+            assertEquals(record, reader.get(InetAddress.getByName("1.2.3.4"), Map.class));
+        }
+    }
+
+    @Test
+    public void testKeepsDatabaseWhenReplacementIsInvalid() throws Exception {
+        var file = this.tempDir.resolve("reload.mmdb");
+        this.replace(file, database("First"));
+
+        var events = new LinkedBlockingQueue<Object>();
+        try (var reader = new ReloadingReader.Builder(file)
+            .pollInterval(POLL_INTERVAL)
+            .listener(new QueueListener(events))
+            .build()) {
+            this.replace(file, new byte[] {1, 2, 3, 4});
+            assertInstanceOf(InvalidDatabaseException.class, next(events));
+            assertEquals("First", reader.getMetadata().databaseType());
+            assertNotNull(reader.get(InetAddress.getByName("1.2.3.4"), Map.class));
+
+            // The next valid file is picked up.
+            this.replace(file, database("Second"));
+            assertInstanceOf(Metadata.class, next(events));
+            assertEquals("Second", reader.getMetadata().databaseType());
+        }
+    }
+
+    @Test
+    public void testWarmerRejectsDatabase() throws Exception {
+        var file = this.tempDir.resolve("reload.mmdb");
+        this.replace(file, database("First"));
+
+        var warmed = new LinkedBlockingQueue<String>();
+        try (var reader = new ReloadingReader.Builder(file)
+            .watch(false)
+            .warmUp(r -> {
+                var type = r.getMetadata().databaseType();
+                warmed.add(type);
+                if (type.equals("Rejected")) {
+                    throw new IOException("rejected");
+                }
+            })
+            .build()) {
+            // The first database is not warmed up.
+            assertTrue(warmed.isEmpty());
+
+            this.replace(file, database("Rejected"));
+            var ex = assertThrows(IOException.class, reader::reload);
+            assertEquals("rejected", ex.getMessage());
+            assertEquals("First", reader.getMetadata().databaseType());
+
+            this.replace(file, database("Second"));
+            reader.reload();
+            assertEquals("Second", reader.getMetadata().databaseType());
+            assertEquals(List.of("Rejected", "Second"), new ArrayList<>(warmed));
+        }
+    }
+
+    @Test
+    public void testLookupsDuringReloads() throws Exception {
+        var file = this.tempDir.resolve("reload.mmdb");
+        var database = SyntheticDatabase.builder().nodeCount(20_000).build();
+        database.write(file);
+
+        var reader = new ReloadingReader.Builder(file)
+            .watch(false)
+            .readerOptions(builder -> builder.withCache(new CHMCache()))
+            .build();
+        var executor = Executors.newFixedThreadPool(4);
+        var done = new AtomicBoolean();
+        try {
+            var futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 4; t++) {
+                var seed = t;
+                futures.add(executor.submit(() -> {
+                    var random = new Random(seed);
+                    var address = new byte[16];
+                    var result = new LookupResult<Map>();
+                    var lookups = 0;
+                    while (!done.get()) {
+                        random.nextBytes(address);
+                        reader.lookup(address, Map.class, result);
+                        var expected = database.expected(address);
+                        assertEquals(database.record(expected.recordIndex()), result.data());
+                        lookups++;
+                    }
+                    return lookups;
+                }));
+            }
+            for (int i = 0; i < 20; i++) {
+                reader.reload();
+                Thread.sleep(5);
+            }
+            done.set(true);
+            for (var future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        var file = this.tempDir.resolve("reload.mmdb");
+        this.replace(file, database("First"));
+
+        var reader = new ReloadingReader.Builder(file).pollInterval(POLL_INTERVAL).build();
+        reader.close();
+        assertThrows(ClosedDatabaseException.class,
+            () -> reader.get(InetAddress.getByName("1.2.3.4"), Map.class));
+        assertThrows(ClosedDatabaseException.class, reader::reload);
+    }
+
+    @Test
+    public void testInvalidPollInterval() {
+        var builder = new ReloadingReader.Builder(this.tempDir.resolve("reload.mmdb"));
+        assertThrows(IllegalArgumentException.class, () -> builder.pollInterval(Duration.ZERO));
+    }
+
+    private static byte[] database(String databaseType) throws IOException {
+        var file = Files.createTempFile("reload", ".mmdb");
+        try {
+            SyntheticDatabase.builder().ipVersion(4).databaseType(databaseType).build()
+                .write(file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Replaces the file by renaming a new one over it, as geoipupdate does.
+    private void replace(Path file, byte[] contents) throws IOException {
+        var temporary = Files.createTempFile(this.tempDir, "reload", ".tmp");
+        Files.write(temporary, contents);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Object next(BlockingQueue<Object> events) throws InterruptedException {
+        var event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event, "timed out waiting for a reload");
+        return event;
+    }
+
+    private static final class QueueListener implements ReloadingReader.Listener {
+        private final BlockingQueue<Object> events;
+
+        QueueListener(BlockingQueue<Object> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void reloaded(Metadata metadata) {
+            this.events.add(metadata);
+        }
+
+        @Override
+        public void reloadFailed(Exception exception) {
+            this.events.add(exception);
+        }
+    }
+}
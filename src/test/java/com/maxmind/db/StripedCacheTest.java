@@ -0,0 +1,282 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class StripedCacheTest {
+    private static CacheKey<Object> key(long offset) {
+        return new CacheKey<>(offset, Object.class, null);
+    }
+
+    private static DecodedValue get(NodeCache cache, long offset, AtomicInteger loads)
+        throws IOException {
+        return cache.get(key(offset), k -> {
+            loads.incrementAndGet();
+            return new DecodedValue("value " + k.offset());
+        });
+    }
+
+    private static StripedCache.ShardStats total(StripedCache cache) {
+        long hits = 0;
+        long misses = 0;
+        long coalesced = 0;
+        long loads = 0;
+        long failures = 0;
+        long loadTime = 0;
+        long contention = 0;
+        long evictions = 0;
+        for (var stats : cache.shardStats()) {
+            hits += stats.hitCount();
+            misses += stats.missCount();
+            coalesced += stats.coalescedCount();
+            loads += stats.loadSuccessCount();
+            failures += stats.loadFailureCount();
+            loadTime += stats.totalLoadTimeNanos();
+            contention += stats.contentionCount();
+            evictions += stats.evictionCount();
+        }
+        return new StripedCache.ShardStats(
+            hits, misses, coalesced, loads, failures, loadTime, contention, evictions);
+    }
+
+    @Test
+    public void testLoadsOnce() throws IOException {
+        var cache = new StripedCache(100);
+        var loads = new AtomicInteger();
+        var first = get(cache, 1, loads);
+        var second = get(cache, 1, loads);
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals("value 1", first.value());
+
+        var stats = total(cache);
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(0, stats.coalescedCount());
+    }
+
+    @Test
+    public void testBoundedByCount() throws IOException {
+        var cache = new StripedCache(100, 4);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 10_000; i++) {
+            get(cache, i, loads);
+            assertTrue(cache.size() <= 100, "size " + cache.size());
+        }
+        assertEquals(4, cache.shardStats().size());
+        assertEquals(10_000 - cache.size(), total(cache).evictionCount());
+    }
+
+    @Test
+    public void testStatsRecorder() throws IOException {
+        var stats = new CacheStats();
+        var cache = new StripedCache(16, 2, stats);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            get(cache, i, loads);
+        }
+        get(cache, 99, loads);
+
+        var total = total(cache);
+        assertEquals(1, stats.hitCount());
+        assertEquals(total.hitCount(), stats.hitCount());
+        assertEquals(100, stats.missCount());
+        assertEquals(100, stats.loadSuccessCount());
+        assertEquals(total.evictionCount(), stats.evictionCount());
+        assertEquals(100 - cache.size(), stats.evictionCount());
+    }
+
+    @Test
+    public void testShardCount() {
+        assertEquals(16, new StripedCache().shardStats().size());
+        assertEquals(1, new StripedCache(10, 1).shardStats().size());
+        assertEquals(8, new StripedCache(10, 5).shardStats().size());
+        assertEquals(8, new StripedCache(10, 8).shardStats().size());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedCache(0));
+        assertThrows(IllegalArgumentException.class, () -> new StripedCache(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new StripedCache(10, 1 << 17));
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        var cache = new StripedCache();
+        int threads = 64;
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        NodeCache.Loader loader = k -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new DecodedValue("value");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<DecodedValue>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> cache.get(key(1), loader)));
+            }
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // Give the other threads time to find the load in progress.
+            while (total(cache).missCount() < threads) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            var first = futures.get(0).get();
+            for (var future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, loads.get());
+        var stats = total(cache);
+        assertEquals(threads, stats.missCount());
+        assertEquals(threads - 1, stats.coalescedCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertTrue(stats.totalLoadTimeNanos() > 0);
+    }
+
+    @Test
+    public void testFailedLoadIsRethrownAndRetried() throws Exception {
+        var cache = new StripedCache();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        NodeCache.Loader failing = k -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new InvalidDatabaseException("corrupt");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var loader = executor.submit(() -> cache.get(key(1), failing));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            var waiter = executor.submit(() -> cache.get(key(1), failing));
+            while (total(cache).coalescedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (var future : new Future<?>[] {loader, waiter}) {
+                var e = assertThrows(Exception.class, future::get);
+                assertTrue(e.getCause() instanceof InvalidDatabaseException, e.toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, total(cache).loadFailureCount());
+        assertEquals(0, cache.size());
+
+        var loads = new AtomicInteger();
+        assertEquals("value 1", get(cache, 1, loads).value());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testNestedLoadsInSameShard() throws IOException {
+        var cache = new StripedCache(100, 1);
+        var loads = new AtomicInteger();
+        var value = cache.get(key(1), k -> {
+            loads.incrementAndGet();
+            return new DecodedValue(get(cache, 2, loads).value() + " nested");
+        });
+        assertEquals("value 2 nested", value.value());
+        assertEquals(2, loads.get());
+    }
+
+    // Each thread loads a value that points to the value the other is
+    // loading, as in a corrupt database with a cycle of pointers.
+    @Test
+    public void testCyclicLoadsInTwoThreads() throws Exception {
+        var cache = new StripedCache();
+        var loading = new CountDownLatch(2);
+        var loads = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var futures = new ArrayList<Future<DecodedValue>>();
+            for (int t = 0; t < 2; t++) {
+                long offset = t + 1;
+                long other = 2 - t;
+                futures.add(executor.submit(() -> cache.get(key(offset), k -> {
+                    loading.countDown();
+                    try {
+                        loading.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return new DecodedValue(get(cache, other, loads).value() + " nested");
+                })));
+            }
+            // Which values are nested depends on the thread that finds the
+            // cycle, but neither may wait for the other forever.
+            for (var future : futures) {
+                var value = (String) future.get(10, TimeUnit.SECONDS).value();
+                assertTrue(value.endsWith(" nested"), value);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(loads.get() >= 1, "loads " + loads.get());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        var cache = new StripedCache(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    var loads = new AtomicInteger();
+                    for (int i = 0; i < 50_000; i++) {
+                        long offset = (i * 31L + seed) % (i % 2 == 0 ? 100 : 5000);
+                        var value = get(cache, offset, loads);
+                        assertEquals("value " + offset, value.value());
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // 500 split across 16 shards rounds up to 32 per shard.
+        assertTrue(cache.size() <= 512, "size " + cache.size());
+        var stats = total(cache);
+        assertEquals(8 * 50_000, stats.hitCount() + stats.missCount());
+    }
+}
@@ -0,0 +1,604 @@
+package com.maxmind.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes valid MaxMind DB files generated from a seed, so that the reader can
+ * be tested and benchmarked at sizes and shapes that the test-data databases
+ * do not cover, including files larger than 2GB.
+ *
+ * <p>The search tree is made of complete binary trees laid out in
+ * breadth-first order: node <code>i</code> of a tree has the children
+ * <code>2i + 1</code> and <code>2i + 2</code>, and a child past the end of the
+ * tree is a network with data. In an IPv6 database, the first 96 nodes follow
+ * the zero bits to a tree for the IPv4 subtree, and the one bits of those
+ * nodes lead to a second tree shared by all other IPv6 addresses. The
+ * networks cycle through the data records, so every address has data, and
+ * {@link #expected(byte[])} gives the record and prefix length that a lookup
+ * should return.
+ *
+ * <p>The data section is written as it is generated and the search tree is
+ * written after it, so only the offsets of the records and, when
+ * deduplicating, of the shared values are held in memory. With
+ * {@link Builder#minimumSize(long)}, the records are spread over the data
+ * section and the gaps between them are left as holes in the file, which
+ * file systems supporting sparse files do not allocate.
+ */
+final class SyntheticDatabase {
+    enum Shape {
+        /**
+         * A map with an id and a name.
+         */
+        SIMPLE,
+        /**
+         * Nested maps shaped like a GeoIP2 City record.
+         */
+        CITY
+    }
+
+    record Lookup(int prefixLength, int recordIndex) {
+    }
+
+    private static final byte[] METADATA_START_MARKER = {(byte) 0xAB,
+        (byte) 0xCD, (byte) 0xEF, 'M', 'a', 'x', 'M', 'i', 'n', 'd', '.', 'c', 'o', 'm'};
+    private static final int DATA_SECTION_SEPARATOR_SIZE = 16;
+    private static final int IPV4_SUBTREE_DEPTH = 96;
+    private static final List<String> LANGUAGES =
+        List.of("de", "en", "es", "fr", "ja", "pt-BR", "ru", "zh-CN");
+    private static final String[] CONTINENT_CODES = {"AF", "AN", "AS", "EU", "NA", "OC", "SA"};
+    private static final int CITY_COUNT = 10_000;
+
+    private final int ipVersion;
+    private final int recordSize;
+    private final long nodeCount;
+    private final int recordCount;
+    private final Shape shape;
+    private final boolean deduplicate;
+    private final long minimumSize;
+    private final long seed;
+    private final String databaseType;
+
+    // The IPv4 tree is empty in an IPv4 database, where the main tree starts
+    // at node 0.
+    private final long ipv4Size;
+    private final long mainStart;
+    private final long mainSize;
+    private final long mainFirstLeaf;
+
+    private SyntheticDatabase(Builder builder) {
+        this.ipVersion = builder.ipVersion;
+        this.recordSize = builder.recordSize;
+        this.nodeCount = builder.nodeCount;
+        this.recordCount = builder.recordCount;
+        this.shape = builder.shape;
+        this.deduplicate = builder.deduplicate;
+        this.minimumSize = builder.minimumSize;
+        this.seed = builder.seed;
+        this.databaseType = builder.databaseType;
+
+        if (this.ipVersion == 6) {
+            this.ipv4Size = (this.nodeCount - IPV4_SUBTREE_DEPTH) / 2;
+            this.mainStart = IPV4_SUBTREE_DEPTH + this.ipv4Size;
+            this.mainFirstLeaf = this.ipv4Size + 1;
+        } else {
+            this.ipv4Size = 0;
+            this.mainStart = 0;
+            this.mainFirstLeaf = 0;
+        }
+        this.mainSize = this.nodeCount - this.mainStart;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private int ipVersion = 6;
+        private int recordSize = 28;
+        private long nodeCount = 10_000;
+        private int recordCount = 1_000;
+        private Shape shape = Shape.CITY;
+        private boolean deduplicate = true;
+        private long minimumSize;
+        private long seed;
+        private String databaseType = "Synthetic";
+
+        private Builder() {
+        }
+
+        Builder ipVersion(int ipVersion) {
+            if (ipVersion != 4 && ipVersion != 6) {
+                throw new IllegalArgumentException("The IP version must be 4 or 6: " + ipVersion);
+            }
+            this.ipVersion = ipVersion;
+            return this;
+        }
+
+        Builder recordSize(int recordSize) {
+            if (recordSize != 24 && recordSize != 28 && recordSize != 32) {
+                throw new IllegalArgumentException(
+                    "The record size must be 24, 28, or 32: " + recordSize);
+            }
+            this.recordSize = recordSize;
+            return this;
+        }
+
+        Builder nodeCount(long nodeCount) {
+            this.nodeCount = nodeCount;
+            return this;
+        }
+
+        Builder recordCount(int recordCount) {
+            if (recordCount < 1) {
+                throw new IllegalArgumentException(
+                    "The record count must be positive: " + recordCount);
+            }
+            this.recordCount = recordCount;
+            return this;
+        }
+
+        Builder shape(Shape shape) {
+            this.shape = shape;
+            return this;
+        }
+
+        /**
+         * When set, strings of four or more bytes, maps, and arrays that were
+         * already written are replaced with pointers to them, as the MaxMind
+         * writers do. Otherwise, every value is written inline.
+         */
+        Builder deduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        /**
+         * Spreads the records over the data section so that the file is at
+         * least <code>minimumSize</code> bytes.
+         */
+        Builder minimumSize(long minimumSize) {
+            if (minimumSize < 0) {
+                throw new IllegalArgumentException(
+                    "The minimum size must not be negative: " + minimumSize);
+            }
+            this.minimumSize = minimumSize;
+            return this;
+        }
+
+        Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        Builder databaseType(String databaseType) {
+            this.databaseType = databaseType;
+            return this;
+        }
+
+        SyntheticDatabase build() {
+            long minimumNodes = this.ipVersion == 6 ? IPV4_SUBTREE_DEPTH + 2 : 1;
+            if (this.nodeCount < minimumNodes || this.nodeCount >= 1L << this.recordSize) {
+                throw new IllegalArgumentException("The node count must be at least "
+                    + minimumNodes + " and fit in a " + this.recordSize + "-bit record: "
+                    + this.nodeCount);
+            }
+            return new SyntheticDatabase(this);
+        }
+    }
+
+    int ipVersion() {
+        return this.ipVersion;
+    }
+
+    int recordSize() {
+        return this.recordSize;
+    }
+
+    long nodeCount() {
+        return this.nodeCount;
+    }
+
+    int recordCount() {
+        return this.recordCount;
+    }
+
+    String databaseType() {
+        return this.databaseType;
+    }
+
+    /**
+     * Writes the database to <code>path</code>, replacing any existing file.
+     *
+     * @throws IllegalArgumentException if the data section is too large to be
+     *                                  pointed to by the records of the tree
+     */
+    void write(Path path) throws IOException {
+        long treeSize = this.nodeCount * this.recordSize / 4;
+        long dataStart = treeSize + DATA_SECTION_SEPARATOR_SIZE;
+        long stride = Math.max(0, this.minimumSize - dataStart) / this.recordCount;
+
+        var offsets = new long[this.recordCount];
+        try (var output = new Output(path)) {
+            var encoder = new Encoder(this.deduplicate);
+            long end = 0;
+            for (int i = 0; i < this.recordCount; i++) {
+                long offset = Math.max(end, i * stride);
+                var bytes = encoder.encode(this.record(i), offset);
+                output.write(dataStart + offset, bytes, bytes.length);
+                offsets[i] = offset;
+                end = offset + bytes.length;
+            }
+
+            long maxRecord = this.nodeCount + DATA_SECTION_SEPARATOR_SIZE
+                + offsets[this.recordCount - 1];
+            if (maxRecord >= 1L << this.recordSize) {
+                throw new IllegalArgumentException("A data section of " + end
+                    + " bytes does not fit in " + this.recordSize + "-bit records");
+            }
+
+            var node = new byte[this.recordSize / 4];
+            for (long i = 0; i < this.nodeCount; i++) {
+                this.encodeNode(node,
+                    this.recordValue(this.child(i, 0), offsets),
+                    this.recordValue(this.child(i, 1), offsets));
+                output.write(i * node.length, node, node.length);
+            }
+
+            var metadata = new Encoder(false).encode(this.metadata(), 0);
+            long metadataStart = Math.max(dataStart + end,
+                this.minimumSize - metadata.length - METADATA_START_MARKER.length);
+            output.write(metadataStart, METADATA_START_MARKER, METADATA_START_MARKER.length);
+            output.write(metadataStart + METADATA_START_MARKER.length,
+                metadata, metadata.length);
+        }
+    }
+
+    /**
+     * @param address a 4-byte or, for an IPv6 database, 16-byte address
+     * @return the prefix length and the index of the record that a lookup of
+     *         <code>address</code> should return.
+     */
+    Lookup expected(byte[] address) {
+        long node;
+        if (address.length == 4 && this.ipVersion == 6) {
+            node = IPV4_SUBTREE_DEPTH;
+        } else if (address.length == 16 && this.ipVersion == 4) {
+            throw new IllegalArgumentException("IPv6 address in an IPv4 database");
+        } else {
+            node = 0;
+        }
+
+        int depth = 0;
+        while (node < this.nodeCount) {
+            int bit = (address[depth >> 3] >> (7 - (depth & 7))) & 1;
+            node = this.child(node, bit);
+            depth++;
+        }
+        return new Lookup(depth, (int) ((node - this.nodeCount) % this.recordCount));
+    }
+
+    /**
+     * @return the record at <code>index</code> as a map would be decoded.
+     */
+    Map<String, Object> record(int index) {
+        var random = new SplittableRandom(this.seed * 0x9E3779B97F4A7C15L + index);
+        if (this.shape == Shape.SIMPLE) {
+            return map("id", (long) index, "name", "Name " + random.nextInt(1_000));
+        }
+
+        int cityId = random.nextInt(CITY_COUNT);
+        int countryId = cityId % 250;
+        int continentId = countryId % CONTINENT_CODES.length;
+        int subdivisionId = cityId % 2_000;
+
+        var location = new LinkedHashMap<String, Object>();
+        location.put("accuracy_radius", 1 + random.nextInt(1_000));
+        location.put("latitude", random.nextDouble(-90, 90));
+        location.put("longitude", random.nextDouble(-180, 180));
+        location.put("time_zone", "Zone/" + (countryId % 40));
+
+        var record = new LinkedHashMap<String, Object>();
+        record.put("city", map("geoname_id", 1_000_000L + cityId,
+            "names", names("City", cityId)));
+        record.put("continent", map("code", CONTINENT_CODES[continentId],
+            "geoname_id", 6_255_146L + continentId,
+            "names", names("Continent", continentId)));
+        record.put("country", map("geoname_id", 2_000_000L + countryId,
+            "iso_code", isoCode(countryId),
+            "names", names("Country", countryId)));
+        record.put("location", location);
+        record.put("postal", map("code", Integer.toString(10_000 + cityId)));
+        record.put("subdivisions", List.of(map("geoname_id", 3_000_000L + subdivisionId,
+            "iso_code", isoCode(subdivisionId % 100),
+            "names", names("Subdivision", subdivisionId))));
+        return record;
+    }
+
+    private static Map<String, Object> map(Object... entries) {
+        var map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], entries[i + 1]);
+        }
+        return map;
+    }
+
+    private static Map<String, Object> names(String prefix, int id) {
+        var names = new LinkedHashMap<String, Object>();
+        for (var language : LANGUAGES) {
+            names.put(language, prefix + " " + id + " (" + language + ")");
+        }
+        return names;
+    }
+
+    private static String isoCode(int id) {
+        return new String(new char[] {(char) ('A' + id / 26 % 26), (char) ('A' + id % 26)});
+    }
+
+    private Map<String, Object> metadata() {
+        var metadata = new LinkedHashMap<String, Object>();
+        metadata.put("binary_format_major_version", 2);
+        metadata.put("binary_format_minor_version", 0);
+        metadata.put("build_epoch", BigInteger.valueOf(1_700_000_000L));
+        metadata.put("database_type", this.databaseType);
+        metadata.put("description", map("en", "Synthetic database with seed " + this.seed));
+        metadata.put("ip_version", this.ipVersion);
+        metadata.put("languages", LANGUAGES);
+        metadata.put("node_count", this.nodeCount);
+        metadata.put("record_size", this.recordSize);
+        return metadata;
+    }
+
+    /**
+     * @return the node that <code>bit</code> leads to from <code>node</code>
+     *         or, for a network, the node count plus the network's index.
+     */
+    private long child(long node, int bit) {
+        if (this.ipVersion == 6 && node < IPV4_SUBTREE_DEPTH) {
+            if (bit == 1) {
+                return this.mainStart;
+            }
+            return node + 1;
+        }
+
+        long start;
+        long size;
+        long firstLeaf;
+        if (node < this.mainStart) {
+            start = IPV4_SUBTREE_DEPTH;
+            size = this.ipv4Size;
+            firstLeaf = 0;
+        } else {
+            start = this.mainStart;
+            size = this.mainSize;
+            firstLeaf = this.mainFirstLeaf;
+        }
+        long child = 2 * (node - start) + 1 + bit;
+        return child < size ? start + child : this.nodeCount + firstLeaf + child - size;
+    }
+
+    private long recordValue(long child, long[] offsets) {
+        if (child < this.nodeCount) {
+            return child;
+        }
+        int record = (int) ((child - this.nodeCount) % this.recordCount);
+        return this.nodeCount + DATA_SECTION_SEPARATOR_SIZE + offsets[record];
+    }
+
+    private void encodeNode(byte[] node, long left, long right) {
+        switch (this.recordSize) {
+            case 24 -> {
+                putBytes(node, 0, left, 3);
+                putBytes(node, 3, right, 3);
+            }
+            case 28 -> {
+                putBytes(node, 0, left, 3);
+                node[3] = (byte) ((left >>> 24) << 4 | (right >>> 24));
+                putBytes(node, 4, right, 3);
+            }
+            default -> {
+                putBytes(node, 0, left, 4);
+                putBytes(node, 4, right, 4);
+            }
+        }
+    }
+
+    private static void putBytes(byte[] bytes, int offset, long value, int length) {
+        for (int i = 0; i < length; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * (length - 1 - i)));
+        }
+    }
+
+    /**
+     * Encodes values in the data section format, replacing values that were
+     * already written with pointers when deduplicating.
+     */
+    private static final class Encoder {
+        private final Map<Object, Long> offsets;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private long base;
+
+        Encoder(boolean deduplicate) {
+            this.offsets = deduplicate ? new HashMap<>() : null;
+        }
+
+        byte[] encode(Object value, long offset) {
+            this.out.reset();
+            this.base = offset;
+            this.write(value, true);
+            return this.out.toByteArray();
+        }
+
+        private void write(Object value, boolean top) {
+            if (this.offsets != null && !top && isShared(value)) {
+                var offset = this.offsets.get(value);
+                if (offset != null) {
+                    this.writePointer(offset);
+                    return;
+                }
+                this.offsets.put(value, this.base + this.out.size());
+            }
+
+            if (value instanceof String s) {
+                var bytes = s.getBytes(StandardCharsets.UTF_8);
+                this.writeControl(Type.UTF8_STRING, bytes.length);
+                this.out.writeBytes(bytes);
+            } else if (value instanceof Double d) {
+                this.writeControl(Type.DOUBLE, 8);
+                this.writeUnsigned(Double.doubleToLongBits(d), 8);
+            } else if (value instanceof Integer i) {
+                if (i < 0 || i > 0xFFFF) {
+                    throw new IllegalArgumentException("Not a uint16: " + i);
+                }
+                this.writeUnsigned(Type.UINT16, i);
+            } else if (value instanceof Long l) {
+                if (l < 0 || l > 0xFFFFFFFFL) {
+                    throw new IllegalArgumentException("Not a uint32: " + l);
+                }
+                this.writeUnsigned(Type.UINT32, l);
+            } else if (value instanceof BigInteger b) {
+                this.writeUnsigned(Type.UINT64, b.longValueExact());
+            } else if (value instanceof Boolean b) {
+                this.writeControl(Type.BOOLEAN, b ? 1 : 0);
+            } else if (value instanceof Map<?, ?> map) {
+                this.writeControl(Type.MAP, map.size());
+                for (var entry : map.entrySet()) {
+                    this.write(entry.getKey(), false);
+                    this.write(entry.getValue(), false);
+                }
+            } else if (value instanceof List<?> list) {
+                this.writeControl(Type.ARRAY, list.size());
+                for (var element : list) {
+                    this.write(element, false);
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported value: " + value);
+            }
+        }
+
+        private static boolean isShared(Object value) {
+            if (value instanceof String s) {
+                return s.getBytes(StandardCharsets.UTF_8).length >= 4;
+            }
+            return value instanceof Map || value instanceof List;
+        }
+
+        private void writeControl(Type type, int size) {
+            int typeBits = type.ordinal() <= 7 ? type.ordinal() << 5 : 0;
+            if (size < 29) {
+                this.out.write(typeBits | size);
+                this.writeExtendedType(type);
+            } else if (size < 285) {
+                this.out.write(typeBits | 29);
+                this.writeExtendedType(type);
+                this.writeUnsigned(size - 29, 1);
+            } else if (size < 65_821) {
+                this.out.write(typeBits | 30);
+                this.writeExtendedType(type);
+                this.writeUnsigned(size - 285, 2);
+            } else {
+                this.out.write(typeBits | 31);
+                this.writeExtendedType(type);
+                this.writeUnsigned(size - 65_821, 3);
+            }
+        }
+
+        private void writeExtendedType(Type type) {
+            if (type.ordinal() > 7) {
+                this.out.write(type.ordinal() - 7);
+            }
+        }
+
+        private void writeUnsigned(Type type, long value) {
+            int length = (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+            this.writeControl(type, length);
+            this.writeUnsigned(value, length);
+        }
+
+        private void writeUnsigned(long value, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                this.out.write((int) (value >>> (8 * i)));
+            }
+        }
+
+        private void writePointer(long offset) {
+            if (offset < 2_048) {
+                this.out.write(0x20 | (int) (offset >>> 8));
+                this.writeUnsigned(offset, 1);
+            } else if (offset < 526_336) {
+                long value = offset - 2_048;
+                this.out.write(0x28 | (int) (value >>> 16));
+                this.writeUnsigned(value, 2);
+            } else if (offset < 134_744_064) {
+                long value = offset - 526_336;
+                this.out.write(0x30 | (int) (value >>> 24));
+                this.writeUnsigned(value, 3);
+            } else if (offset <= 0xFFFFFFFFL) {
+                this.out.write(0x38);
+                this.writeUnsigned(offset, 4);
+            } else {
+                throw new IllegalArgumentException("Pointer past 4GB: " + offset);
+            }
+        }
+    }
+
+    /**
+     * Buffers contiguous writes to a file, leaving the gaps between
+     * non-contiguous writes as holes.
+     */
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private long position;
+
+        Output(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long at, byte[] bytes, int length) throws IOException {
+            if (at != this.position + this.buffer.position()
+                || length > this.buffer.remaining()) {
+                this.flush();
+                this.position = at;
+            }
+            if (length > this.buffer.capacity()) {
+                var wrapped = ByteBuffer.wrap(bytes, 0, length);
+                while (wrapped.hasRemaining()) {
+                    this.position += this.channel.write(wrapped, this.position);
+                }
+                return;
+            }
+            this.buffer.put(bytes, 0, length);
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.position += this.channel.write(this.buffer, this.position);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.flush();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.maxmind.db.Reader.FileMode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class SyntheticDatabaseTest {
+    @TempDir
+    Path tempDir;
+
+    static Stream<Arguments> layouts() {
+        var arguments = new ArrayList<Arguments>();
+        for (int ipVersion : new int[] {4, 6}) {
+            for (int recordSize : new int[] {24, 28, 32}) {
+                for (var mode : FileMode.values()) {
+                    arguments.add(Arguments.of(ipVersion, recordSize, mode, false));
+                    arguments.add(Arguments.of(ipVersion, recordSize, mode, true));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    public void testLookups(
+        int ipVersion,
+        int recordSize,
+        FileMode mode,
+        boolean specializedSearchTree
+    ) throws IOException {
+        var database = SyntheticDatabase.builder()
+            .ipVersion(ipVersion)
+            .recordSize(recordSize)
+            .nodeCount(5_000)
+            .recordCount(300)
+            .build();
+        var file = this.write(database);
+        try (var reader = new Reader.Builder(file.toFile())
+            .fileMode(mode)
+            .specializedSearchTree(specializedSearchTree)
+            .build()) {
+            var metadata = reader.getMetadata();
+            assertEquals(ipVersion, metadata.ipVersion());
+            assertEquals(recordSize, metadata.recordSize());
+            assertEquals(5_000, metadata.nodeCount());
+            assertEquals("Synthetic", metadata.databaseType());
+            assertLookups(database, reader, 2_000);
+        }
+    }
+
+    @Test
+    public void testChunkedBuffers() throws IOException {
+        var database = SyntheticDatabase.builder().nodeCount(20_000).build();
+        var file = this.write(database);
+        try (var reader = new Reader.Builder(file.toFile())
+            .fileMode(FileMode.MEMORY)
+            .chunkSize(4_096)
+            .build()) {
+            assertLookups(database, reader, 2_000);
+        }
+        try (InputStream stream = Files.newInputStream(file);
+             var reader = new Reader.Builder(stream).chunkSize(4_099).build()) {
+            assertLookups(database, reader, 2_000);
+        }
+    }
+
+    // The records are spread over the file, and the pointers to the values
+    // they share cross the chunk boundaries.
+    @Test
+    public void testMinimumSize() throws IOException {
+        var database = SyntheticDatabase.builder()
+            .recordSize(32)
+            .recordCount(100)
+            .minimumSize(8 << 20)
+            .build();
+        var file = this.write(database);
+        assertTrue(Files.size(file) >= 8 << 20, "size " + Files.size(file));
+        try (var reader = new Reader.Builder(file.toFile())
+            .fileMode(FileMode.MEMORY)
+            .chunkSize(1 << 20)
+            .build()) {
+            assertLookups(database, reader, 2_000);
+        }
+    }
+
+    @Test
+    public void testDeduplicate() throws IOException {
+        var builder = SyntheticDatabase.builder().ipVersion(4);
+        var deduplicated = builder.deduplicate(true).build();
+        var inline = builder.deduplicate(false).build();
+        var deduplicatedFile = this.write(deduplicated);
+        var inlineFile = this.write(inline);
+        assertTrue(Files.size(deduplicatedFile) * 2 < Files.size(inlineFile));
+        try (var reader = new Reader(deduplicatedFile.toFile())) {
+            assertLookups(inline, reader, 1_000);
+        }
+    }
+
+    @Test
+    public void testSimpleShape() throws IOException {
+        var database = SyntheticDatabase.builder()
+            .shape(SyntheticDatabase.Shape.SIMPLE)
+            .recordCount(10)
+            .build();
+        try (var reader = new Reader(this.write(database).toFile())) {
+            var result = reader.lookup(new byte[] {1, 2, 3, 4}, Map.class,
+                new LookupResult<>());
+            var expected = database.expected(new byte[] {1, 2, 3, 4});
+            assertEquals((long) expected.recordIndex(), result.data().get("id"));
+        }
+    }
+
+    @Test
+    public void testDataSectionTooLarge() {
+        var database = SyntheticDatabase.builder()
+            .recordSize(24)
+            .minimumSize(32 << 20)
+            .build();
+        assertThrows(IllegalArgumentException.class, () -> this.write(database));
+    }
+
+    // Writing a tree this large is too slow for a unit test, but the check
+    // comes before the tree is read.
+    @Test
+    public void testTreeOnHeapTooLarge() throws IOException {
+        var searchTree = SearchTree.create(32, 1L << 30, false);
+        var ex = assertThrows(IllegalArgumentException.class,
+            () -> SearchTree.onHeap(searchTree, null));
+        assertTrue(ex.getMessage().startsWith("FileMode.TREE_ON_HEAP is not supported"),
+            ex.getMessage());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        var builder = SyntheticDatabase.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.ipVersion(5));
+        assertThrows(IllegalArgumentException.class, () -> builder.recordSize(16));
+        assertThrows(IllegalArgumentException.class, () -> builder.recordCount(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.minimumSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.nodeCount(97).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> builder.recordSize(24).nodeCount(1 << 24).build());
+    }
+
+    // The file is sparse on most file systems, but it is mapped in chunks
+    // and walks pointers across the 2GB boundaries, so it is only run when
+    // -Dmaxmind.db.largeTests=true is set.
+    @Test
+    @EnabledIfSystemProperty(named = "maxmind.db.largeTests", matches = "true")
+    public void testLargerThan2GB() throws IOException {
+        var database = SyntheticDatabase.builder()
+            .recordSize(32)
+            .nodeCount(1_000_000)
+            .recordCount(10_000)
+            .minimumSize(3L << 30)
+            .build();
+        var file = this.write(database);
+        assertTrue(Files.size(file) >= 3L << 30, "size " + Files.size(file));
+        try (var reader = new Reader(file.toFile())) {
+            assertLookups(database, reader, 20_000);
+        }
+    }
+
+    private Path write(SyntheticDatabase database) throws IOException {
+        var file = Files.createTempFile(this.tempDir, "synthetic", ".mmdb");
+        database.write(file);
+        return file;
+    }
+
+    private static void assertLookups(SyntheticDatabase database, Reader reader, int count)
+        throws IOException {
+        var random = new Random(count);
+        var result = new LookupResult<Map>();
+        for (int i = 0; i < count; i++) {
+            var address = new byte[database.ipVersion() == 6 && i % 2 == 0 ? 16 : 4];
+            random.nextBytes(address);
+            var expected = database.expected(address);
+            reader.lookup(address, Map.class, result);
+            var ip = InetAddress.getByAddress(address).getHostAddress();
+            assertEquals(expected.prefixLength(), result.prefixLength(), ip);
+            assertEquals(database.record(expected.recordIndex()), result.data(), ip);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.maxmind.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TinyLfuCacheTest {
+    private static CacheKey<Object> key(long offset) {
+        return new CacheKey<>(offset, Object.class, null);
+    }
+
+    private static DecodedValue get(NodeCache cache, long offset, AtomicInteger loads)
+        throws IOException {
+        return cache.get(key(offset), k -> {
+            loads.incrementAndGet();
+            return new DecodedValue("value " + k.offset());
+        });
+    }
+
+    @Test
+    public void testLoadsOnce() throws IOException {
+        var cache = new TinyLfuCache(100);
+        var loads = new AtomicInteger();
+        var first = get(cache, 1, loads);
+        var second = get(cache, 1, loads);
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals("value 1", first.value());
+    }
+
+    @Test
+    public void testBoundedByCount() throws IOException {
+        var cache = new TinyLfuCache(100);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 10_000; i++) {
+            get(cache, i, loads);
+            assertTrue(cache.size() <= 100, "size " + cache.size());
+        }
+        assertEquals(10_000, loads.get());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan() throws IOException {
+        var cache = new TinyLfuCache(100);
+        var loads = new AtomicInteger();
+        // Make entries 0 to 49 hot.
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                get(cache, i, loads);
+            }
+        }
+        // A scan of entries used only once should not evict them.
+        for (int i = 1000; i < 11_000; i++) {
+            get(cache, i, loads);
+        }
+        loads.set(0);
+        for (int i = 0; i < 50; i++) {
+            get(cache, i, loads);
+        }
+        assertTrue(loads.get() <= 5, "reloaded " + loads.get() + " hot entries");
+    }
+
+    @Test
+    public void testBoundedByWeight() throws IOException {
+        var cache = new TinyLfuCache(1000, (key, value) -> (int) key.offset() % 10 * 10);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 10_000; i++) {
+            get(cache, i, loads);
+            assertTrue(cache.weightedSize() <= 1000, "weight " + cache.weightedSize());
+        }
+    }
+
+    @Test
+    public void testEntryHeavierThanCapacityIsNotCached() throws IOException {
+        var cache = new TinyLfuCache(10, (key, value) -> 11);
+        var loads = new AtomicInteger();
+        get(cache, 1, loads);
+        get(cache, 1, loads);
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    // The main space holds 990, so an entry weighing more can never be
+    // admitted to it, and must not evict the entries already there trying.
+    @Test
+    public void testEntryHeavierThanMainSpaceDoesNotFlushCache() throws IOException {
+        var cache = new TinyLfuCache(1000, (key, value) -> key.offset() == 1000 ? 995 : 10);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            get(cache, i, loads);
+        }
+        // Each miss raises the heavy entry's frequency above that of the
+        // cached entries.
+        for (int i = 0; i < 5; i++) {
+            get(cache, 1000, loads);
+        }
+        assertEquals(55, loads.get());
+        assertEquals(50, cache.size());
+        assertEquals(500, cache.weightedSize());
+
+        loads.set(0);
+        for (int i = 0; i < 50; i++) {
+            get(cache, i, loads);
+        }
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testStats() throws IOException {
+        var stats = new CacheStats();
+        var cache = new TinyLfuCache(100, (key, value) -> 1, stats);
+        var loads = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            get(cache, i, loads);
+        }
+        get(cache, 999, loads);
+
+        assertEquals(1, stats.hitCount());
+        assertEquals(1000, stats.missCount());
+        assertEquals(1000, stats.loadSuccessCount());
+        assertEquals(1000 - cache.size(), stats.evictionCount());
+        assertEquals(1.0 / 1001, stats.hitRate(), 1e-9);
+
+        assertThrows(InvalidDatabaseException.class, () -> cache.get(key(5000), k -> {
+            throw new InvalidDatabaseException("corrupt");
+        }));
+        assertEquals(1, stats.loadFailureCount());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TinyLfuCache(0));
+        assertThrows(NullPointerException.class, () -> new TinyLfuCache(10, null));
+
+        var cache = new TinyLfuCache(10, (key, value) -> -1);
+        assertThrows(IllegalArgumentException.class,
+            () -> get(cache, 1, new AtomicInteger()));
+    }
+
+    @Test
+    public void testEstimatedBytesWeigher() {
+        var weigher = TinyLfuCache.estimatedBytesWeigher();
+        var small = weigher.weigh(key(0), Map.of("a", "b"));
+        var large = weigher.weigh(key(0), Map.of("a", "b".repeat(1000), "c", List.of(1L, 2L)));
+        assertTrue(small > 0);
+        assertTrue(large > small + 1000, small + " " + large);
+        assertEquals(0, weigher.weigh(key(0), Boolean.TRUE));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        var cache = new TinyLfuCache(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    var loads = new AtomicInteger();
+                    for (int i = 0; i < 50_000; i++) {
+                        long offset = (i * 31L + seed) % (i % 2 == 0 ? 100 : 5000);
+                        var value = get(cache, offset, loads);
+                        assertEquals("value " + offset, value.value());
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 500, "size " + cache.size());
+        assertEquals(cache.size(), cache.weightedSize());
+    }
+}